@@ -0,0 +1,64 @@
+package bguspl.set;
+
+/**
+ * An interface for the source of time of a game: all the timeouts, freezes and delays of the game are measured and
+ * waited for with it, and the threads of the game block only on its signals (see Signal), so a virtual clock knows
+ * when they all wait for it.
+ */
+public interface Clock {
+
+    /**
+     * @return - the current time in milliseconds.
+     */
+    long currentTimeMillis();
+
+    /**
+     * Sleeps the current thread for the specified amount of time.
+     *
+     * @param millis - the time to sleep, in milliseconds.
+     * @throws InterruptedException - if the thread is interrupted while sleeping.
+     */
+    void sleep(long millis) throws InterruptedException;
+
+    /**
+     * @return - a new signal, lowered, whose waits are measured with this clock.
+     */
+    Signal newSignal();
+
+    /**
+     * Makes a task a participant of the game on this clock: a virtual clock moves only while no participant runs (see
+     * VirtualClock). The task counts as running from this call until it ends, so call this right before starting it.
+     *
+     * @param task - the task (e.g. the body of a game thread).
+     * @return - the task to run instead.
+     */
+    default Runnable participant(Runnable task) {
+        return task;
+    }
+
+    /**
+     * A flag that threads wait for until it is raised or the clock reaches a deadline. Raising the signal wakes one
+     * waiting thread, or else the next thread to wait; the thread woken lowers the signal.
+     */
+    interface Signal {
+
+        /**
+         * Raises the signal.
+         */
+        void raise();
+
+        /**
+         * Lowers the signal, forgetting a raise that no thread waited for.
+         */
+        void clear();
+
+        /**
+         * Waits until the signal is raised or the clock reaches a deadline, and lowers the signal.
+         *
+         * @param deadline - the time (in milliseconds) until which to wait (Long.MAX_VALUE to wait for a raise only).
+         * @return - true iff the signal was raised (false if the deadline passed).
+         * @throws InterruptedException - if the thread is interrupted while waiting.
+         */
+        boolean await(long deadline) throws InterruptedException;
+    }
+}
@@ -21,6 +21,22 @@ public class Config {
     public final long randomSpinMin;
     public final long randomSpinMax;
 
+    /**
+     * Whether to run a headless simulation: no user interface, and all timeouts, freezes and delays on a virtual clock
+     */
+    public final boolean simulation;
+
+    /**
+     * Whether to run the players and the computer players' key press generators on virtual threads
+     */
+    public final boolean virtualThreads;
+
+    /**
+     * Whether the table is changed by one owner thread processing commands, instead of by the players and the dealer
+     * under per-slot locks
+     */
+    public final boolean actorTable;
+
     /**
      * The number of features on the cards (e.g. shape, color etc.)
      */
@@ -36,6 +52,16 @@ public class Config {
      */
     public final int deckSize;
 
+    /**
+     * Whether to search for sets in parallel (on the common fork-join pool) when searching large collections of cards
+     */
+    public final boolean parallelSearch;
+
+    /**
+     * The maximal number of card collections whose sets are cached (0 to disable the cache)
+     */
+    public final int setCacheSize;
+
     /**
      * The number of human players in the game.
      */
@@ -81,6 +107,11 @@ public class Config {
      */
     public final long tableDelayMillis;
 
+    /**
+     * The number of milliseconds between two key presses of a computer player
+     */
+    public final long computerKeyPressMillis;
+
     /**
      * The number of milliseconds to pause at the end of the game before closing
      */
@@ -193,10 +224,16 @@ public class Config {
         if (randomSpinMax < randomSpinMin || randomSpinMin < 0)
             logger.severe("invalid random spin cycles: max: " + randomSpinMax + " min: " + randomSpinMin);
 
+        simulation = Boolean.parseBoolean(properties.getProperty("Simulation", "False"));
+        virtualThreads = Boolean.parseBoolean(properties.getProperty("VirtualThreads", "False"));
+        actorTable = Boolean.parseBoolean(properties.getProperty("ActorTable", "False"));
+
         // cards settings
         featureSize = Integer.parseInt(properties.getProperty("FeatureSize", "3"));
         featureCount = Integer.parseInt(properties.getProperty("FeatureCount", "4"));
         deckSize = (int) Math.pow(featureSize, featureCount);
+        parallelSearch = Boolean.parseBoolean(properties.getProperty("ParallelSearch", "False"));
+        setCacheSize = Integer.parseInt(properties.getProperty("SetCacheSize", "1024"));
 
         // gameplay settings
         humanPlayers = Integer.parseInt(properties.getProperty("HumanPlayers", "2"));
@@ -209,6 +246,7 @@ public class Config {
         pointFreezeMillis = (long) (Double.parseDouble(properties.getProperty("PointFreezeSeconds", "1")) * 1000.0);
         penaltyFreezeMillis = (long) (Double.parseDouble(properties.getProperty("PenaltyFreezeSeconds", "3")) * 1000.0);
         tableDelayMillis = (long) (Double.parseDouble(properties.getProperty("TableDelaySeconds", "0.1")) * 1000.0);
+        computerKeyPressMillis = (long) (Double.parseDouble(properties.getProperty("ComputerKeyPressSeconds", "0.01")) * 1000.0);
         endGamePauseMillies = (long) (Double.parseDouble(properties.getProperty("EndGamePauseSeconds", "5")) * 1000.0);
 
         // ui settings
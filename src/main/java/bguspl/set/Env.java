@@ -8,11 +8,40 @@ public class Env {
     public final Config config;
     public final UserInterface ui;
     public final Util util;
+    public final Clock clock;
+
+    /**
+     * True iff the game entities run on virtual threads (see newThread).
+     */
+    public final boolean virtualThreads;
 
     public Env(Logger logger, Config config, UserInterface ui, Util util) {
+        this(logger, config, ui, util, new SystemClock());
+    }
+
+    public Env(Logger logger, Config config, UserInterface ui, Util util, Clock clock) {
+        this(logger, config, ui, util, clock, config.virtualThreads);
+    }
+
+    public Env(Logger logger, Config config, UserInterface ui, Util util, Clock clock, boolean virtualThreads) {
         this.logger = logger;
         this.config = config;
         this.ui = ui;
         this.util = util;
+        this.clock = clock;
+        this.virtualThreads = virtualThreads;
+    }
+
+    /**
+     * Creates a thread for a game entity, which is a virtual thread if so configured (see Config::virtualThreads, which
+     * a GameHost overrides). The thread is a participant of the game on its clock (see Clock::participant).
+     *
+     * @param target - the runnable the thread runs.
+     * @param name   - the name of the thread.
+     * @return - the new thread (not started, start it right away).
+     */
+    public Thread newThread(Runnable target, String name) {
+        Runnable participant = clock.participant(target);
+        return virtualThreads ? Thread.ofVirtual().name(name).unstarted(participant) : new Thread(participant, name);
     }
 }
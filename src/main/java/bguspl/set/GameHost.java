@@ -0,0 +1,279 @@
+package bguspl.set;
+
+import bguspl.set.ex.ActorTable;
+import bguspl.set.ex.Dealer;
+import bguspl.set.ex.Player;
+import bguspl.set.ex.Table;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.logging.Logger;
+
+/**
+ * Hosts many independent games in one JVM (unlike Main, which runs a single game with a user interface).
+ * Every game has its own Env, Table, Dealer and players, but the games created with the same config share their
+ * utilities (see Util). Every game runs its dealer on a thread of its own, and a semaphore lets at most maxRunningGames
+ * games run at once: the games created beyond that wait for a permit, in the order they were created.
+ * The dealers, the players and their AI run on virtual threads by default, so a game takes no platform threads of its
+ * own, whether it runs or waits.
+ * The lifecycle of the host is: create games, drain (stop accepting games and let the hosted ones finish), and reap
+ * the finished games (dropping them from the host).
+ */
+public class GameHost {
+
+    /**
+     * The state of a hosted game.
+     */
+    public enum State { QUEUED, RUNNING, FINISHED }
+
+    private final Logger logger;
+
+    /**
+     * The permits to run a game, one per game that may run at once.
+     */
+    private final Semaphore permits;
+
+    /**
+     * The number of games that did not end yet (guarded by drainLock, signalling drainedCondition when it drops to 0).
+     */
+    private int unfinished;
+    private final ReentrantLock drainLock = new ReentrantLock();
+    private final Condition drainedCondition = drainLock.newCondition();
+
+    /**
+     * The games that were created and not reaped yet, by id.
+     */
+    private final Map<Integer, Game> games = new ConcurrentHashMap<>();
+
+    /**
+     * The utilities of each config, shared by all the games created with it (so are their lookup tables and their
+     * cache of the sets found, see LookupUtilImpl).
+     */
+    private final Map<Config, Util> utils = new ConcurrentHashMap<>();
+
+    private final AtomicInteger nextId = new AtomicInteger();
+
+    /**
+     * True iff the host does not accept new games.
+     */
+    private volatile boolean draining;
+
+    /**
+     * True iff the dealers and the players of the games run on virtual threads (whatever Config::virtualThreads says).
+     */
+    private final boolean virtualThreads;
+
+    /**
+     * @param logger          - the logger all the games log to.
+     * @param maxRunningGames - the maximal number of games that run at once.
+     */
+    public GameHost(Logger logger, int maxRunningGames) {
+        this(logger, maxRunningGames, true);
+    }
+
+    /**
+     * @param logger          - the logger all the games log to.
+     * @param maxRunningGames - the maximal number of games that run at once.
+     * @param virtualThreads  - true to run the dealers and the players of the games on virtual threads, false for
+     *                          platform threads.
+     */
+    public GameHost(Logger logger, int maxRunningGames, boolean virtualThreads) {
+        this.logger = logger;
+        this.virtualThreads = virtualThreads;
+        permits = new Semaphore(maxRunningGames, true);
+    }
+
+    /**
+     * Creates a game with no user interface and queues it for running.
+     *
+     * @param config - the configuration of the game.
+     * @return - the created game.
+     * @throws IllegalStateException - if the host is draining.
+     */
+    public Game create(Config config) {
+        return create(config, new NoUserInterface(logger));
+    }
+
+    /**
+     * Creates a game and queues it for running.
+     *
+     * @param config - the configuration of the game.
+     * @param ui     - the user interface of the game.
+     * @return - the created game.
+     * @throws IllegalStateException - if the host is draining.
+     */
+    public synchronized Game create(Config config, UserInterface ui) {
+        if (draining) throw new IllegalStateException("the game host is draining");
+
+        Clock clock = config.simulation ? new VirtualClock() : new SystemClock();
+        Env env = new Env(logger, config, ui, utils.computeIfAbsent(config, LookupUtilImpl::new), clock,
+                virtualThreads);
+        Game game = new Game(nextId.getAndIncrement(), env);
+        games.put(game.id, game);
+        drainLock.lock();
+        try {
+            unfinished++;
+        } finally {
+            drainLock.unlock();
+        }
+        Thread dealerThread = env.newThread(() -> runWithPermit(game), "dealer-" + game.id);
+        dealerThread.setDaemon(true);
+        dealerThread.start();
+        return game;
+    }
+
+    /**
+     * Runs a game once a permit is available (on the game's dealer thread).
+     *
+     * @param game - the game.
+     */
+    private void runWithPermit(Game game) {
+        try {
+            permits.acquireUninterruptibly();
+            try {
+                game.run();
+            } finally {
+                permits.release();
+            }
+        } finally {
+            drainLock.lock();
+            try {
+                if (--unfinished == 0) drainedCondition.signalAll();
+            } finally {
+                drainLock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Stops accepting new games. The hosted games keep running (or wait to run) until they end.
+     */
+    public synchronized void drain() {
+        draining = true;
+        drainLock.lock();
+        try {
+            drainedCondition.signalAll();
+        } finally {
+            drainLock.unlock();
+        }
+    }
+
+    /**
+     * Waits until all the hosted games ended, after the host was drained.
+     *
+     * @param timeout - the maximal time to wait.
+     * @param unit    - the unit of the timeout.
+     * @return - true iff the host was drained and all the games ended before the timeout.
+     * @throws InterruptedException - if interrupted while waiting.
+     */
+    public boolean awaitDrained(long timeout, TimeUnit unit) throws InterruptedException {
+        long nanos = unit.toNanos(timeout);
+        drainLock.lock();
+        try {
+            while (!draining || unfinished > 0) {
+                if (nanos <= 0) return false;
+                nanos = drainedCondition.awaitNanos(nanos);
+            }
+            return true;
+        } finally {
+            drainLock.unlock();
+        }
+    }
+
+    /**
+     * Drains the host and terminates all the hosted games (the queued ones do not run at all).
+     */
+    public void terminate() {
+        drain();
+        games.values().forEach(Game::terminate);
+    }
+
+    /**
+     * Removes the finished games from the host.
+     *
+     * @return - the games removed.
+     */
+    public List<Game> reap() {
+        List<Game> reaped = new ArrayList<>();
+        games.values().removeIf(game -> {
+            if (game.state() != State.FINISHED) return false;
+            reaped.add(game);
+            return true;
+        });
+        return reaped;
+    }
+
+    /**
+     * @return - the number of games created and not reaped yet.
+     */
+    public int size() {
+        return games.size();
+    }
+
+    /**
+     * A game hosted by a GameHost.
+     */
+    public static class Game {
+
+        public final int id;
+        public final Env env;
+        public final Table table;
+        public final Dealer dealer;
+        public final Player[] players;
+
+        private final AtomicReference<State> state = new AtomicReference<>(State.QUEUED);
+
+        private Game(int id, Env env) {
+            this.id = id;
+            this.env = env;
+            table = env.config.actorTable ? new ActorTable(env) : new Table(env);
+            players = new Player[env.config.players];
+            dealer = new Dealer(env, table, players);
+            for (int i = 0; i < players.length; i++)
+                players[i] = new Player(env, dealer, table, i, i < env.config.humanPlayers);
+        }
+
+        private void run() {
+            if (!state.compareAndSet(State.QUEUED, State.RUNNING)) return; // terminated before it started
+            try {
+                env.logger.info("game " + id + " starting.");
+                dealer.run();
+            } finally {
+                state.set(State.FINISHED);
+                env.logger.info("game " + id + " finished.");
+            }
+        }
+
+        /**
+         * Terminates the game if it is running, or drops it if it did not start yet.
+         */
+        public void terminate() {
+            if (state.compareAndSet(State.QUEUED, State.FINISHED))
+                table.terminate(); // the dealer never ran, so the table (e.g. the owner thread of an ActorTable) is left
+            else
+                dealer.terminate();
+        }
+
+        public State state() {
+            return state.get();
+        }
+
+        /**
+         * @return - the scores of the players, by id.
+         */
+        public int[] scores() {
+            int[] scores = new int[players.length];
+            for (int i = 0; i < players.length; i++)
+                scores[i] = players[i].score();
+            return scores;
+        }
+    }
+}
@@ -0,0 +1,356 @@
+package bguspl.set;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Queue;
+import java.util.Spliterator;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * A table driven implementation of the Util interface.
+ * The features of every card are packed once (when the utilities are created from the config) into a single long, in
+ * which each feature takes a one-hot field of config.featureSize bits. Set queries are then answered from these
+ * lookup tables without allocating anything.
+ * For the classic featureSize of 3, sets are found by completing pairs: every two cards determine the unique card
+ * that would complete them to a set, so only that card has to be looked up.
+ * Large collections of cards (e.g. the deck) are searched by filtering the shared catalog of all the sets of the deck
+ * instead, whenever it has fewer candidates than the completion search.
+ * When config.parallelSearch is set, searches over large collections of cards are split by the first card of the
+ * sets across the common fork-join pool.
+ */
+public class LookupUtilImpl extends UtilImpl {
+
+    /**
+     * The packed features of each card: bit (feature * featureSize + value) is set iff the feature has this value.
+     * Null if the features of a card do not fit in a long (i.e. featureCount * featureSize > 64).
+     */
+    protected final long[] packedFeatures;
+
+    /**
+     * A mask of the bits of each feature field in the packed representation.
+     */
+    protected final long[] featureMasks;
+
+    /**
+     * The features of each card, flattened (the features of card c start at index c * featureCount).
+     */
+    protected final int[] cardFeatures;
+
+    /**
+     * The catalog of all the sets of the deck (null if the deck has too many sets).
+     */
+    protected final SetCatalog catalog;
+
+    /**
+     * The results of previous searches, by the cards searched (null if caching is disabled).
+     */
+    private final SetCache cache;
+
+
+    public LookupUtilImpl(Config config) {
+        super(config);
+        catalog = SetCatalog.of(config);
+        cache = config.setCacheSize > 0 ? new SetCache(config.setCacheSize) : null;
+
+        cardFeatures = new int[config.deckSize * config.featureCount];
+        for (int card = 0; card < config.deckSize; ++card)
+            for (int i = 0; i < config.featureCount; ++i)
+                cardFeatures[card * config.featureCount + i] = card / featureWeights[i] % config.featureSize;
+
+        if (config.featureCount * config.featureSize > Long.SIZE) {
+            packedFeatures = null;
+            featureMasks = null;
+            return;
+        }
+
+        featureMasks = new long[config.featureCount];
+        long fieldMask = config.featureSize == Long.SIZE ? -1L : (1L << config.featureSize) - 1;
+        for (int i = 0; i < config.featureCount; ++i)
+            featureMasks[i] = fieldMask << (i * config.featureSize);
+
+        packedFeatures = new long[config.deckSize];
+        for (int card = 0; card < config.deckSize; ++card) {
+            long packed = 0;
+            for (int i = 0; i < config.featureCount; ++i)
+                packed |= 1L << (i * config.featureSize + cardFeatures[card * config.featureCount + i]);
+            packedFeatures[card] = packed;
+        }
+    }
+
+    @Override
+    public boolean testSet(int[] cards) {
+        if (packedFeatures == null) return super.testSet(cards);
+
+        long union = 0;
+        for (int card : cards)
+            union |= packedFeatures[card];
+
+        // every feature must take either a single value (sameSame) or a distinct value per card (butDifferent)
+        for (long mask : featureMasks) {
+            int values = Long.bitCount(union & mask);
+            boolean sameSame = values == 1, butDifferent = values == cards.length;
+            if (sameSame == butDifferent) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Checks a batch of claims in two passes over flat arrays: the first one ORs the packed features of each claim into
+     * its union, the second one checks the feature fields of all the unions, one feature at a time.
+     */
+    @Override
+    public void testSets(int[][] claims, boolean[] out) {
+        if (packedFeatures == null) {
+            super.testSets(claims, out);
+            return;
+        }
+
+        long[] unions = new long[claims.length];
+        for (int i = 0; i < claims.length; ++i) {
+            for (int card : claims[i])
+                unions[i] |= packedFeatures[card];
+            out[i] = true;
+        }
+
+        for (long mask : featureMasks)
+            for (int i = 0; i < claims.length; ++i) {
+                int values = Long.bitCount(unions[i] & mask);
+                boolean sameSame = values == 1, butDifferent = values == claims[i].length;
+                if (sameSame == butDifferent) out[i] = false;
+            }
+    }
+
+    @Override
+    public List<int[]> findSets(List<Integer> deck, int count) {
+        if (config.featureSize < 2) return super.findSets(deck, count);
+
+        int[] cards = deck.stream().mapToInt(Integer::intValue).sorted().toArray();
+        long[] present = presence(cards);
+
+        int[][] cached = cache != null ? cache.get(present) : null;
+        if (cached != null) {
+            LinkedList<int[]> sets = new LinkedList<>();
+            for (int i = 0; i < cached.length && i < Math.max(count, 1); ++i)
+                sets.add(cached[i].clone());
+            return sets;
+        }
+
+        List<int[]> sets;
+        if (config.parallelSearch && cards.length >= PARALLEL_SEARCH_THRESHOLD)
+            sets = parallelFindSets(cards, present, count);
+        else {
+            LinkedList<int[]> found = new LinkedList<>();
+            searchRange(cards, present, 0, cards.length, set -> {
+                found.add(set);
+                return found.size() < count;
+            });
+            sets = found;
+        }
+
+        // fewer sets than requested means the search was not cut short, so these are all the sets in the cards
+        if (cache != null && sets.size() < count)
+            cache.put(present, sets);
+        return sets;
+    }
+
+    /**
+     * Streams the sets from the cache when the cards were searched before. Otherwise the sets are searched lazily as
+     * usual, and cached if the stream is consumed to the end without being split (a parallel stream is not cached).
+     */
+    @Override
+    public Stream<int[]> streamSets(int[] cards) {
+        Stream<int[]> sets = super.streamSets(cards);
+        if (cache == null || config.featureSize < 2) return sets;
+
+        long[] present = presence(cards);
+        int[][] cached = cache.get(present);
+        if (cached != null) return Arrays.stream(cached).map(int[]::clone);
+        return StreamSupport.stream(new CachingSpliterator(sets.spliterator(), present), sets.isParallel());
+    }
+
+    /**
+     * A spliterator that passes on the sets of another one, and caches them all once it is exhausted.
+     */
+    private class CachingSpliterator implements Spliterator<int[]> {
+
+        private final Spliterator<int[]> source;
+        private final long[] present;
+        private List<int[]> found = new ArrayList<>(); // null once split or cached
+
+        CachingSpliterator(Spliterator<int[]> source, long[] present) {
+            this.source = source;
+            this.present = present;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super int[]> action) {
+            if (source.tryAdvance(set -> {
+                if (found != null) found.add(set.clone());
+                action.accept(set);
+            })) return true;
+            complete();
+            return false;
+        }
+
+        @Override
+        public void forEachRemaining(Consumer<? super int[]> action) {
+            source.forEachRemaining(set -> {
+                if (found != null) found.add(set.clone());
+                action.accept(set);
+            });
+            complete();
+        }
+
+        private void complete() {
+            if (found != null) cache.put(present, found);
+            found = null;
+        }
+
+        @Override
+        public Spliterator<int[]> trySplit() {
+            Spliterator<int[]> prefix = source.trySplit();
+            if (prefix != null) found = null; // this part does not see all the sets any more
+            return prefix;
+        }
+
+        @Override
+        public long estimateSize() {
+            return source.estimateSize();
+        }
+
+        @Override
+        public int characteristics() {
+            return source.characteristics();
+        }
+    }
+
+    /**
+     * @return - the cache of previous searches (null if caching is disabled).
+     */
+    public SetCache cache() {
+        return cache;
+    }
+
+    /**
+     * Searches for sets on the common fork-join pool, splitting the search by the first (smallest) card of the sets.
+     * The search stops as soon as count sets were found.
+     *
+     * @param cards   - the sorted card ids to search in.
+     * @param present - a bitmap of the cards to search in.
+     * @param count   - the maximum number of sets to find.
+     * @return - a list of up to count sets (in no particular order).
+     */
+    private List<int[]> parallelFindSets(int[] cards, long[] present, int count) {
+        Queue<int[]> found = new ConcurrentLinkedQueue<>();
+        AtomicInteger remaining = new AtomicInteger(Math.max(count, 1));
+        ForkJoinPool.commonPool().invoke(new SearchTask(cards, present, 0, cards.length, set -> {
+            if (remaining.getAndDecrement() <= 0) return false;
+            found.add(set);
+            return remaining.get() > 0;
+        }, remaining));
+        return new LinkedList<>(found);
+    }
+
+    /**
+     * A fork-join task searching for the sets whose first card is in a range of indices.
+     */
+    private class SearchTask extends RecursiveAction {
+
+        private final int[] cards;
+        private final long[] present;
+        private final int from;
+        private final int to;
+        private final Predicate<int[]> sink;
+        private final AtomicInteger remaining;
+
+        SearchTask(int[] cards, long[] present, int from, int to, Predicate<int[]> sink, AtomicInteger remaining) {
+            this.cards = cards;
+            this.present = present;
+            this.from = from;
+            this.to = to;
+            this.sink = sink;
+            this.remaining = remaining;
+        }
+
+        @Override
+        protected void compute() {
+            if (remaining.get() <= 0) return;
+            if (to - from <= 1) {
+                searchRange(cards, present, from, to, sink);
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new SearchTask(cards, present, from, middle, sink, remaining),
+                    new SearchTask(cards, present, middle, to, sink, remaining));
+        }
+    }
+
+    @Override
+    protected boolean searchRange(int[] cards, long[] present, int from, int to, Predicate<int[]> sink) {
+        if (catalog != null && catalogCandidates(cards.length) < completionCandidates(cards.length)) {
+            for (int i = from; i < to; ++i)
+                if (!catalog.forEachSetOf(cards[i], present, sink)) return false;
+            return true;
+        }
+
+        if (config.featureSize == 3) {
+            for (int i = from; i < to; ++i)
+                for (int j = i + 1; j < cards.length; ++j) {
+                    // only accept the completing card if it is the largest of the three, so each set is found once
+                    int third = thirdCard(cards[i], cards[j]);
+                    if (third > cards[j] && (present[third / Long.SIZE] & 1L << third) != 0
+                            && !sink.test(new int[]{cards[i], cards[j], third}))
+                        return false;
+                }
+            return true;
+        }
+
+        return super.searchRange(cards, present, from, to, sink);
+    }
+
+    /**
+     * @param cards - the number of cards searched in.
+     * @return - the expected number of catalog entries checked when searching these cards with the catalog.
+     */
+    private double catalogCandidates(int cards) {
+        return (double) cards * catalog.size() / config.deckSize;
+    }
+
+    /**
+     * @param cards - the number of cards searched in.
+     * @return - the number of combinations of featureSize - 1 cards completed when searching without the catalog.
+     */
+    private double completionCandidates(int cards) {
+        double combinations = 1;
+        for (int i = 0; i < config.featureSize - 1; ++i)
+            combinations = combinations * (cards - i) / (i + 1);
+        return combinations;
+    }
+
+    /**
+     * Computes the only card that forms a legal set together with two given cards (for featureSize 3).
+     *
+     * @param first  - the first card id.
+     * @param second - the second card id.
+     * @return - the id of the completing card.
+     */
+    protected int thirdCard(int first, int second) {
+        int card = 0;
+        int firstBase = first * config.featureCount, secondBase = second * config.featureCount;
+        for (int i = 0; i < config.featureCount; ++i) {
+            // equal values complete to the same value, different values complete to the remaining one
+            int value = (6 - cardFeatures[firstBase + i] - cardFeatures[secondBase + i]) % 3;
+            card += value * featureWeights[i];
+        }
+        return card;
+    }
+}
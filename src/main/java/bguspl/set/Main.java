@@ -1,5 +1,6 @@
 package bguspl.set;
 
+import bguspl.set.ex.ActorTable;
 import bguspl.set.ex.Dealer;
 import bguspl.set.ex.Player;
 import bguspl.set.ex.Table;
@@ -43,38 +44,49 @@ public class Main {
         logger = initLogger();
         ThreadLogger.logStart(logger, Thread.currentThread().getName());
         Config config = new Config(logger, "config.properties");
-        Util util = new UtilImpl(config);
+        Util util = new LookupUtilImpl(config);
 
         Player[] players = new Player[config.players];
         UserInterface ui = null;
-        try {
-            ui = new UserInterfaceSwing(logger, config, players);
-        } catch (UnsupportedOperationException | IllegalArgumentException e) {
-            logger.severe("error creating swing user interface: " + e.getMessage());
-            logger.severe("will try to run without user interface");
-            if (config.humanPlayers > 0)
-                logger.severe("warning: running with human players with no user interface");
+        Clock clock = new SystemClock();
+        if (config.simulation) {
+            logger.severe("running a simulation on a virtual clock, with no user interface");
+            ui = new NoUserInterface(logger);
+            clock = new VirtualClock();
+        } else {
+            try {
+                ui = new UserInterfaceSwing(logger, config, players);
+            } catch (UnsupportedOperationException | IllegalArgumentException e) {
+                logger.severe("error creating swing user interface: " + e.getMessage());
+                logger.severe("will try to run without user interface");
+                if (config.humanPlayers > 0)
+                    logger.severe("warning: running with human players with no user interface");
+            }
+            ui = new UserInterfaceDecorator(logger, util, ui);
         }
-        ui = new UserInterfaceDecorator(logger, util, ui);
 
-        Env env = new Env(logger, config, ui, util);
+        Env env = new Env(logger, config, ui, util, clock);
 
         // create the game entities
-        Table table = new Table(env);
+        Table table = config.actorTable ? new ActorTable(env) : new Table(env);
         dealer = new Dealer(env, table, players);
         for (int i = 0; i < players.length; i++)
             players[i] = new Player(env, dealer, table, i, i < env.config.humanPlayers);
 
         // start the dealer thread
-        ThreadLogger dealerThread = new ThreadLogger(dealer, "dealer", logger);
+        ThreadLogger dealerThread = new ThreadLogger(env.clock.participant(dealer), "dealer", logger);
         dealerThread.startWithLog();
 
         try {
             // shutdown stuff
             dealerThread.joinWithLog();
-            if (!xButtonPressed && config.endGamePauseMillies > 0) Thread.sleep(config.endGamePauseMillies);
+            if (!xButtonPressed && config.endGamePauseMillies > 0) env.clock.sleep(config.endGamePauseMillies);
         } catch (InterruptedException ignored) {
         } finally {
+            if (util instanceof LookupUtilImpl && ((LookupUtilImpl) util).cache() != null)
+                logger.info(((LookupUtilImpl) util).cache().toString());
+            if (config.simulation)
+                logger.severe("simulated game time: " + env.clock.currentTimeMillis() + " ms");
             logger.severe("thanks for playing... it was fun!");
             System.out.println("Thanks for playing... it was fun!");
             ThreadLogger.logStop(logger, Thread.currentThread().getName());
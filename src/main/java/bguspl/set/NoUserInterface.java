@@ -0,0 +1,60 @@
+package bguspl.set;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+
+/**
+ * An implementation of the UserInterface interface that displays nothing (e.g. for simulations).
+ * Only the scores and the winners are logged, as the outcome of the game.
+ */
+public class NoUserInterface implements UserInterface {
+
+    private final Logger logger;
+
+    public NoUserInterface(Logger logger) {
+        this.logger = logger;
+    }
+
+    @Override
+    public void placeCard(int card, int slot) {}
+
+    @Override
+    public void removeCard(int slot) {}
+
+    @Override
+    public void placeToken(int player, int slot) {}
+
+    @Override
+    public void removeTokens() {}
+
+    @Override
+    public void removeTokens(int slot) {}
+
+    @Override
+    public void removeToken(int player, int slot) {}
+
+    @Override
+    public void setCountdown(long millies, boolean warn) {}
+
+    @Override
+    public void setElapsed(long millies) {}
+
+    @Override
+    public void setFreeze(int player, long millies) {}
+
+    @Override
+    public void setScore(int player, int score) {
+        logger.info("player " + (player + 1) + " score set to " + score);
+    }
+
+    @Override
+    public void announceWinner(int[] players) {
+        List<String> winners = Arrays.stream(players).mapToObj(id -> "player " + (id + 1)).collect(Collectors.toList());
+        logger.severe("announcing winner(s): " + String.join(", ", winners));
+    }
+
+    @Override
+    public void dispose() {}
+}
@@ -0,0 +1,108 @@
+package bguspl.set;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A bounded, least recently used cache of the sets found in collections of cards.
+ * Entries are keyed by the fingerprint of the cards, i.e. their presence bitmap (for the standard 81 cards deck, two
+ * longs), so a collection of cards that recurs (e.g. the same table layout in another round or another game) is not
+ * searched again. Only complete results (all the sets in the cards) are cached.
+ */
+public class SetCache {
+
+    /**
+     * The maximal number of entries in the cache.
+     */
+    private final int capacity;
+
+    /**
+     * The cached results, in access order (the eldest entry is the least recently used one).
+     */
+    private final LinkedHashMap<Fingerprint, int[][]> entries;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    public SetCache(int capacity) {
+        this.capacity = capacity;
+        entries = new LinkedHashMap<Fingerprint, int[][]>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Fingerprint, int[][]> eldest) {
+                return size() > SetCache.this.capacity;
+            }
+        };
+    }
+
+    /**
+     * Looks up the sets of a collection of cards.
+     *
+     * @param present - the presence bitmap of the cards.
+     * @return - all the sets in the cards, or null if they are not cached.
+     */
+    public int[][] get(long[] present) {
+        int[][] sets;
+        synchronized (entries) {
+            sets = entries.get(new Fingerprint(present));
+        }
+        (sets == null ? misses : hits).incrementAndGet();
+        return sets;
+    }
+
+    /**
+     * Caches the sets of a collection of cards (possibly evicting the least recently used entry).
+     *
+     * @param present - the presence bitmap of the cards.
+     * @param sets    - all the sets in the cards.
+     */
+    public void put(long[] present, List<int[]> sets) {
+        int[][] copy = sets.stream().map(int[]::clone).toArray(int[][]::new);
+        synchronized (entries) {
+            entries.put(new Fingerprint(present.clone()), copy);
+        }
+    }
+
+    public long hits() {
+        return hits.get();
+    }
+
+    public long misses() {
+        return misses.get();
+    }
+
+    @Override
+    public String toString() {
+        int size;
+        synchronized (entries) {
+            size = entries.size();
+        }
+        return "set cache: " + size + "/" + capacity + " entries, " + hits() + " hits, " + misses() + " misses";
+    }
+
+    /**
+     * The presence bitmap of a collection of cards, as a map key.
+     */
+    private static final class Fingerprint {
+
+        private final long[] words;
+        private final int hash;
+
+        Fingerprint(long[] words) {
+            this.words = words;
+            hash = Arrays.hashCode(words);
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof Fingerprint && Arrays.equals(words, ((Fingerprint) other).words);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package bguspl.set;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+import java.util.stream.IntStream;
+
+/**
+ * A precomputed catalog of all the legal sets of a deck, indexed by the smallest card of each set.
+ * The sets contained in any collection of cards (given as a bitmap, see UtilImpl::presence) are found by checking
+ * the catalog entries of its cards against the bitmap, instead of searching combinations.
+ * A catalog only depends on the features of the deck, so one read-only instance is shared by all the games in the JVM.
+ */
+public final class SetCatalog {
+
+    /**
+     * The maximal number of sets a catalog may hold (bigger decks are searched without a catalog).
+     */
+    private static final int MAX_SETS = 1 << 21;
+
+    /**
+     * The catalogs built so far, by deck features.
+     */
+    private static final Map<Long, SetCatalog> catalogs = new ConcurrentHashMap<>();
+
+    /**
+     * The number of cards in a set (i.e. featureSize).
+     */
+    private final int setSize;
+
+    /**
+     * The cards of all the sets, flattened and in ascending order (set i is at indices [i * setSize, (i+1) * setSize)).
+     */
+    private final int[] sets;
+
+    /**
+     * The sets whose smallest card is c are the sets [firstSetOf[c], firstSetOf[c + 1]).
+     */
+    private final int[] firstSetOf;
+
+    private SetCatalog(Config config) {
+        setSize = config.featureSize;
+        sets = new UtilImpl(config).streamSets(IntStream.range(0, config.deckSize).toArray())
+                .flatMapToInt(IntStream::of).toArray();
+
+        // the sets are ordered by their smallest card, so the index is a prefix sum of the number of sets per card
+        firstSetOf = new int[config.deckSize + 1];
+        for (int set = 0; set < size(); ++set)
+            firstSetOf[sets[set * setSize] + 1]++;
+        for (int card = 0; card < config.deckSize; ++card)
+            firstSetOf[card + 1] += firstSetOf[card];
+    }
+
+    /**
+     * Returns the catalog of the deck described by a configuration, building it on first use.
+     *
+     * @param config - the game configuration.
+     * @return - the shared catalog, or null if the deck has too many sets to be cataloged.
+     */
+    public static SetCatalog of(Config config) {
+        if (config.featureSize < 2 || countSets(config) > MAX_SETS) return null;
+        long key = (long) config.featureSize << Integer.SIZE | config.featureCount;
+        return catalogs.computeIfAbsent(key, k -> new SetCatalog(config));
+    }
+
+    /**
+     * Counts the sets of a deck: per feature, an ordered tuple of featureSize cards takes one of featureSize equal
+     * values or one of featureSize! permutations, and tuples of a single repeated card are excluded.
+     *
+     * @param config - the game configuration.
+     * @return - the number of legal sets in the deck.
+     */
+    static double countSets(Config config) {
+        double permutations = 1;
+        for (int i = 2; i <= config.featureSize; ++i)
+            permutations *= i;
+        return (Math.pow(config.featureSize + permutations, config.featureCount) - config.deckSize) / permutations;
+    }
+
+    /**
+     * @return - the number of sets in the catalog.
+     */
+    public int size() {
+        return sets.length / setSize;
+    }
+
+    /**
+     * Passes to a sink the sets whose smallest card is the given card and whose cards are all in a bitmap.
+     *
+     * @param card    - the smallest card of the sets.
+     * @param present - a bitmap of the cards the sets may contain.
+     * @param sink    - receives the sets found, and returns false to stop.
+     * @return - false iff stopped by the sink.
+     */
+    public boolean forEachSetOf(int card, long[] present, Predicate<int[]> sink) {
+        for (int set = firstSetOf[card]; set < firstSetOf[card + 1]; ++set)
+            if (contained(set, present)) {
+                int[] cards = new int[setSize];
+                System.arraycopy(sets, set * setSize, cards, 0, setSize);
+                if (!sink.test(cards)) return false;
+            }
+        return true;
+    }
+
+    private boolean contained(int set, long[] present) {
+        for (int i = set * setSize; i < (set + 1) * setSize; ++i)
+            if ((present[sets[i] / Long.SIZE] & 1L << sets[i]) == 0) return false;
+        return true;
+    }
+}
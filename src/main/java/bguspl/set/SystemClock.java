@@ -0,0 +1,75 @@
+package bguspl.set;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * The wall clock implementation of the Clock interface.
+ */
+public class SystemClock implements Clock {
+
+    @Override
+    public long currentTimeMillis() {
+        return System.currentTimeMillis();
+    }
+
+    @Override
+    public void sleep(long millis) throws InterruptedException {
+        Thread.sleep(millis);
+    }
+
+    @Override
+    public Signal newSignal() {
+        return new SystemSignal();
+    }
+
+    /**
+     * A signal waited for on a condition. A lock and a condition are used rather than a monitor, so a waiting virtual
+     * thread does not pin its carrier.
+     */
+    private class SystemSignal implements Signal {
+
+        private final ReentrantLock lock = new ReentrantLock();
+        private final Condition raisedCondition = lock.newCondition();
+        private boolean raised; // guarded by lock
+
+        @Override
+        public void raise() {
+            lock.lock();
+            try {
+                raised = true;
+                raisedCondition.signal();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        @Override
+        public void clear() {
+            lock.lock();
+            try {
+                raised = false;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        @Override
+        public boolean await(long deadline) throws InterruptedException {
+            lock.lock();
+            try {
+                while (!raised) {
+                    long millis = deadline - currentTimeMillis();
+                    if (deadline == Long.MAX_VALUE) raisedCondition.await();
+                    else if (millis > 0) raisedCondition.await(millis, TimeUnit.MILLISECONDS);
+                    else return false;
+                }
+                raised = false;
+                return true;
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package bguspl.set;
 
 import java.util.List;
+import java.util.stream.Stream;
 
 /**
  * An interface for general utilities provided for convenience.
@@ -31,6 +32,17 @@ public interface Util {
      */
     boolean testSet(int[] cards);
 
+    /**
+     * Checks a batch of arrays of cards, each one for being a legal set (see testSet method).
+     *
+     * @param claims - the arrays of cards to check.
+     * @param out    - receives the results: out[i] is set to true iff claims[i] forms a legal set.
+     */
+    default void testSets(int[][] claims, boolean[] out) {
+        for (int i = 0; i < claims.length; ++i)
+            out[i] = testSet(claims[i]);
+    }
+
     /**
      * Finds and returns up to count sets in the given collection of cards.
      *
@@ -40,6 +52,16 @@ public interface Util {
      */
     List<int[]> findSets(List<Integer> deck, int count);
 
+    /**
+     * Lazily streams the sets in the given cards: sets are searched for only as they are consumed, so a short-circuiting
+     * operation (e.g. findFirst or limit) stops the search. The stream may be made parallel, in which case the search
+     * is split between the threads; it already is when config.parallelSearch is set and there are many cards.
+     *
+     * @param cards - an array of card ids (with no duplicates).
+     * @return - a stream of integer arrays, each one contains the card ids of a legal set (in ascending order).
+     */
+    Stream<int[]> streamSets(int[] cards);
+
     /**
      * Spin a random number of times (for debugging/testing).
      */
@@ -1,20 +1,47 @@
 package bguspl.set;
 
+import java.util.ArrayDeque;
 import java.util.Arrays;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Spliterator;
 import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
 import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * The implementation of the UserInterface interface.
  */
 public class UtilImpl implements Util {
 
-    private final Config config;
+    protected final Config config;
+
+    /**
+     * The minimal number of cards for which a parallel search is used (smaller searches are faster sequentially).
+     */
+    protected static final int PARALLEL_SEARCH_THRESHOLD = 128;
+
+    /**
+     * The weight of each feature in the card id (i.e. featureSize ^ (featureCount - 1 - feature)).
+     */
+    protected final int[] featureWeights;
+
+    /**
+     * True iff every featureSize - 1 cards determine the only card that completes them to a set (featureSize >= 3).
+     * Sets are then tested feature by feature on the card ids and searched for by completion, instead of the generic
+     * code.
+     */
+    private final boolean completable;
 
     public UtilImpl(Config config) {
         this.config = config;
+        featureWeights = new int[config.featureCount];
+        for (int i = config.featureCount - 1, weight = 1; i >= 0; --i, weight *= config.featureSize)
+            featureWeights[i] = weight;
+        completable = config.featureSize >= 3 && config.featureSize < Integer.SIZE;
     }
 
     private void cardToFeatures(int card, int[] features) {
@@ -40,6 +67,8 @@ public class UtilImpl implements Util {
 
     @Override
     public boolean testSet(int[] cards) {
+        if (completable && cards.length == config.featureSize) return testCompletableSet(cards);
+
         int[][] features = cardsToFeatures(Arrays.copyOf(cards, cards.length));
         for (int i = 0; i < config.featureCount; ++i) {
             boolean sameSame = true, butDifferent = true;
@@ -64,9 +93,72 @@ public class UtilImpl implements Util {
         return true;
     }
 
+    /**
+     * Checks if featureSize cards form a legal set, without allocating. For featureSize 3 a feature is legal iff the sum
+     * of its values is 0 modulo 3. For larger sizes (where a zero sum does not imply legality, e.g. 0+0+1+2+2 modulo 5)
+     * the values of each feature are collected into a bitmask, which must hold either one value or featureSize values.
+     *
+     * @param cards - an array of featureSize cards.
+     * @return - true iff the array forms a legal set.
+     */
+    private boolean testCompletableSet(int[] cards) {
+        for (int weight : featureWeights) {
+            if (config.featureSize == 3) {
+                int sum = cards[0] / weight % 3 + cards[1] / weight % 3 + cards[2] / weight % 3;
+                if (sum % 3 != 0) return false;
+            } else {
+                int values = 0;
+                for (int card : cards)
+                    values |= 1 << (card / weight % config.featureSize);
+                int count = Integer.bitCount(values);
+                if (count != 1 && count != cards.length) return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Computes the only card that forms a legal set together with featureSize - 1 given cards (if featureSize >= 3).
+     * For each feature, equal values complete to the same value and distinct values complete to the missing value
+     * (i.e. the sum of all values minus the sum of the given ones, which is -(a+b) modulo 3 for featureSize 3).
+     *
+     * @param cards  - an array of card ids.
+     * @param length - the number of cards to complete (featureSize - 1) from the beginning of the array.
+     * @return - the id of the completing card, or -1 if no card completes the given ones.
+     */
+    protected int completeSet(int[] cards, int length) {
+        int allValues = config.featureSize * (config.featureSize - 1) / 2;
+        int card = 0;
+        for (int weight : featureWeights) {
+            int values = 0, sum = 0;
+            for (int i = 0; i < length; ++i) {
+                int value = cards[i] / weight % config.featureSize;
+                values |= 1 << value;
+                sum += value;
+            }
+            int count = Integer.bitCount(values);
+            if (count == 1)
+                card += cards[0] / weight % config.featureSize * weight;
+            else if (count == length)
+                card += (allValues - sum) * weight;
+            else
+                return -1;
+        }
+        return card;
+    }
+
     @Override
     public List<int[]> findSets(List<Integer> deck, int count) {
         LinkedList<int[]> sets = new LinkedList<>();
+        if (completable) {
+            int[] cards = deck.stream().mapToInt(Integer::intValue).sorted().toArray();
+            searchRange(cards, presence(cards), 0, cards.length, set -> {
+                sets.add(set);
+                return sets.size() < count;
+            });
+            return sets;
+        }
+
         int n = deck.size();
         int r = config.featureSize;
         int[] combination = new int[r];
@@ -90,6 +182,136 @@ public class UtilImpl implements Util {
         return sets;
     }
 
+    @Override
+    public Stream<int[]> streamSets(int[] cards) {
+        int[] sorted = Arrays.stream(cards).sorted().toArray();
+        boolean parallel = config.parallelSearch && sorted.length >= PARALLEL_SEARCH_THRESHOLD;
+        return StreamSupport.stream(new SetSpliterator(sorted, presence(sorted), 0, sorted.length), parallel);
+    }
+
+    /**
+     * Creates a bitmap of card ids (bit card % 64 of word card / 64 is set iff the card is in the given array).
+     *
+     * @param cards - an array of card ids.
+     * @return - the bitmap of the cards.
+     */
+    protected long[] presence(int[] cards) {
+        long[] present = new long[(config.deckSize + Long.SIZE - 1) / Long.SIZE];
+        for (int card : cards)
+            present[card / Long.SIZE] |= 1L << card;
+        return present;
+    }
+
+    /**
+     * Passes to a sink every set (in ascending card order) whose first card is at an index in [from, to).
+     *
+     * @param cards   - the sorted card ids to search in.
+     * @param present - a bitmap of the cards to search in (see the presence method).
+     * @param from    - the first index (inclusive) of the first card of the sets.
+     * @param to      - the last index (exclusive) of the first card of the sets.
+     * @param sink    - receives the sets found, and returns false to stop the search.
+     * @return - false iff the search was stopped by the sink.
+     */
+    protected boolean searchRange(int[] cards, long[] present, int from, int to, Predicate<int[]> sink) {
+        int n = cards.length;
+        int r = config.featureSize;
+        if (r < 2) return true; // a single card is never a legal set
+
+        // with completion only the first r - 1 cards are enumerated, the last one is computed
+        int m = completable ? r - 1 : r;
+        int[] combination = new int[m];
+        int[] candidate = new int[r];
+        for (int i = from; i < to && i <= n - m; ++i) {
+            for (int t = 0; t < m; ++t)
+                combination[t] = i + t;
+
+            while (combination[m - 1] < n) {
+                for (int t = 0; t < m; ++t)
+                    candidate[t] = cards[combination[t]];
+                if (completable) {
+                    // only accept the completing card if it is the largest one, so each set is found once
+                    int last = completeSet(candidate, m);
+                    if (last > candidate[m - 1] && (present[last / Long.SIZE] & 1L << last) != 0) {
+                        candidate[m] = last;
+                        if (!sink.test(candidate.clone())) return false;
+                    }
+                } else if (testSet(candidate) && !sink.test(candidate.clone()))
+                    return false;
+
+                // generate next combination of the remaining cards in lexicographic order
+                int t = m - 1;
+                while (t > 1 && combination[t] == n - m + t) --t;
+                combination[t]++;
+                for (int k = t + 1; k < m; k++) combination[k] = combination[k - 1] + 1;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * A lazy, splittable source of the sets in a sorted array of cards.
+     * The sets are produced one first card at a time: the sets starting with the next card are searched only when
+     * all the previously found sets were consumed. Splitting divides the remaining first cards between the halves.
+     */
+    private class SetSpliterator implements Spliterator<int[]> {
+
+        private final int[] cards;
+        private final long[] present;
+        private final ArrayDeque<int[]> buffer = new ArrayDeque<>();
+        private int index;
+        private final int fence;
+
+        SetSpliterator(int[] cards, long[] present, int index, int fence) {
+            this.cards = cards;
+            this.present = present;
+            this.index = index;
+            this.fence = fence;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super int[]> action) {
+            while (buffer.isEmpty() && index < fence) {
+                searchRange(cards, present, index, index + 1, buffer::add);
+                index++;
+            }
+            if (buffer.isEmpty()) return false;
+            action.accept(buffer.poll());
+            return true;
+        }
+
+        @Override
+        public void forEachRemaining(Consumer<? super int[]> action) {
+            while (!buffer.isEmpty())
+                action.accept(buffer.poll());
+            searchRange(cards, present, index, fence, set -> {
+                action.accept(set);
+                return true;
+            });
+            index = fence;
+        }
+
+        @Override
+        public Spliterator<int[]> trySplit() {
+            if (!buffer.isEmpty() || fence - index < 2) return null;
+            // sets starting with smaller cards are more numerous, so the prefix gets fewer first cards
+            int middle = index + (fence - index) / 3;
+            if (middle == index) return null;
+            SetSpliterator prefix = new SetSpliterator(cards, present, index, middle);
+            index = middle;
+            return prefix;
+        }
+
+        @Override
+        public long estimateSize() {
+            return buffer.size() + (long) (fence - index) * (fence - index);
+        }
+
+        @Override
+        public int characteristics() {
+            return ORDERED | DISTINCT | NONNULL | IMMUTABLE;
+        }
+    }
+
     public void spin() {
         if (config.randomSpinMax <= 0) return;
         long cycles = ThreadLocalRandom.current().nextLong(config.randomSpinMin, config.randomSpinMax);
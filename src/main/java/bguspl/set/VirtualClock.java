@@ -0,0 +1,223 @@
+package bguspl.set;
+
+import java.util.ArrayDeque;
+import java.util.Comparator;
+import java.util.PriorityQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A virtual implementation of the Clock interface, for running simulations faster than real time.
+ * The time starts at 0 and moves only when no participant of the game runs (see Clock::participant): every participant
+ * is waiting for a signal of the clock, so nothing can happen before the earliest deadline waited for. The time then
+ * jumps to that deadline and the threads waiting for it wake up. Hence sleeps, freezes and turn timeouts take no real
+ * time, and how much play fits in a unit of simulated time does not depend on the speed of the host.
+ * The participants must block only on the signals of the clock (a participant blocked on anything else counts as
+ * running, so the time stands still until it is unblocked).
+ */
+public class VirtualClock implements Clock {
+
+    /**
+     * Guards the state of the clock and of its signals (every signal waits on a condition of this lock, so whoever
+     * moves the time can wake the threads whose deadline passed).
+     */
+    private final ReentrantLock lock = new ReentrantLock();
+
+    /**
+     * The current virtual time.
+     */
+    private volatile long now;
+
+    /**
+     * The number of participants that are not waiting for a signal (guarded by lock).
+     */
+    private int running;
+
+    /**
+     * The waits with a deadline, earliest first (guarded by lock).
+     */
+    private final PriorityQueue<Wait> deadlines = new PriorityQueue<>(Comparator.comparingLong(wait -> wait.deadline));
+
+    /**
+     * The number of times in a row the time moved for the thread that made it move alone (guarded by lock), and how
+     * many such moves a thread makes before pausing for PAUSE_NANOS of real time: a thread that no one else wakes up
+     * (e.g. the dealer of a game nobody plays) would otherwise never leave its carrier, if it is a virtual thread, and
+     * starve the other virtual threads of the carrier.
+     */
+    private int loneJumps;
+    private static final int LONE_JUMPS_BEFORE_PAUSE = 1024;
+    private static final long PAUSE_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+
+    /**
+     * True in the threads that run a participant.
+     */
+    private final ThreadLocal<Boolean> participating = ThreadLocal.withInitial(() -> false);
+
+    @Override
+    public long currentTimeMillis() {
+        return now;
+    }
+
+    @Override
+    public void sleep(long millis) throws InterruptedException {
+        new VirtualSignal().await(now + millis);
+    }
+
+    @Override
+    public Signal newSignal() {
+        return new VirtualSignal();
+    }
+
+    @Override
+    public Runnable participant(Runnable task) {
+        lock.lock();
+        try {
+            running++;
+        } finally {
+            lock.unlock();
+        }
+        return () -> {
+            boolean outer = participating.get();
+            participating.set(true);
+            try {
+                task.run();
+            } finally {
+                participating.set(outer);
+                lock.lock();
+                try {
+                    running--;
+                    advanceIfIdle();
+                } finally {
+                    lock.unlock();
+                }
+            }
+        };
+    }
+
+    /**
+     * Moves the time to the earliest deadline waited for and wakes up the threads waiting for it, as long as no
+     * participant runs (called with the lock held, whenever a participant stops running).
+     *
+     * @return - the number of threads woken up.
+     */
+    private int advanceIfIdle() {
+        int woken = 0;
+        while (running == 0 && !deadlines.isEmpty()) {
+            now = Math.max(now, deadlines.peek().deadline);
+            while (!deadlines.isEmpty() && deadlines.peek().deadline <= now) {
+                Wait wait = deadlines.poll();
+                wait.signal.waits.remove(wait);
+                wait.wake(false);
+                woken++;
+            }
+        }
+        return woken;
+    }
+
+    /**
+     * A wait of a thread for a signal.
+     */
+    private class Wait {
+
+        final VirtualSignal signal;
+        final long deadline;
+        final boolean participant;
+        boolean woken;
+        boolean raised;
+
+        Wait(VirtualSignal signal, long deadline) {
+            this.signal = signal;
+            this.deadline = deadline;
+            participant = participating.get();
+        }
+
+        /**
+         * Wakes the waiting thread up, counting it as running from now on (so the time does not move before it runs).
+         */
+        void wake(boolean raised) {
+            woken = true;
+            this.raised = raised;
+            if (participant) running++;
+            signal.wokenCondition.signalAll();
+        }
+    }
+
+    /**
+     * A signal of the virtual clock.
+     */
+    private class VirtualSignal implements Signal {
+
+        private final Condition wokenCondition = lock.newCondition();
+        private final ArrayDeque<Wait> waits = new ArrayDeque<>();
+        private boolean raised; // guarded by lock
+
+        @Override
+        public void raise() {
+            lock.lock();
+            try {
+                Wait wait = waits.poll();
+                if (wait == null) {
+                    raised = true;
+                } else {
+                    deadlines.remove(wait);
+                    wait.wake(true);
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        @Override
+        public void clear() {
+            lock.lock();
+            try {
+                raised = false;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        @Override
+        public boolean await(long deadline) throws InterruptedException {
+            boolean pause = false;
+            lock.lock();
+            try {
+                if (raised) {
+                    raised = false;
+                    return true;
+                }
+                if (now >= deadline) return false;
+
+                Wait wait = new Wait(this, deadline);
+                waits.add(wait);
+                if (deadline != Long.MAX_VALUE) deadlines.add(wait);
+                if (wait.participant) running--;
+                if (advanceIfIdle() == 1 && wait.woken) // the time moved for this thread alone
+                    pause = ++loneJumps % LONE_JUMPS_BEFORE_PAUSE == 0;
+                else
+                    loneJumps = 0;
+                try {
+                    while (!wait.woken)
+                        wokenCondition.await();
+                } catch (InterruptedException e) {
+                    if (!wait.woken) {
+                        waits.remove(wait);
+                        deadlines.remove(wait);
+                        if (wait.participant) running++;
+                        throw e;
+                    }
+                    Thread.currentThread().interrupt(); // woken anyway, the next wait throws
+                }
+                return wait.raised;
+            } finally {
+                lock.unlock();
+                if (pause) try { // see loneJumps
+                    TimeUnit.NANOSECONDS.sleep(PAUSE_NANOS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt(); // the next wait throws
+                }
+            }
+        }
+    }
+}
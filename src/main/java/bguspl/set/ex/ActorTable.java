@@ -0,0 +1,269 @@
+package bguspl.set.ex;
+
+import bguspl.set.Clock;
+import bguspl.set.Env;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * A table whose state is only changed by one owner thread (enabled by Config::actorTable).
+ * Every mutation (placing and removing cards and tokens, and the slot updates of the players and the dealer) is a
+ * command sent to the owner's mailbox, and the caller waits for it to be processed. Commands never contend on slot
+ * monitors, so many players hammering the same slots queue up instead of convoying on locks. After each command the
+ * owner publishes an immutable snapshot of the table, which readers get without waiting. The owner and the callers wait
+ * for each other on signals of the game clock (see Clock::Signal).
+ * When the table is terminated it falls back to the locking behavior of Table, for the commands of late callers.
+ */
+public class ActorTable extends Table {
+
+    /**
+     * The commands waiting for the owner thread.
+     */
+    private final BlockingQueue<Runnable> mailbox = new LinkedBlockingQueue<>();
+
+    /**
+     * The game clock, and the signal the owner thread waits on for commands.
+     */
+    private final Clock clock;
+    private final Clock.Signal commandSignal;
+
+    /**
+     * The command that stops the owner thread.
+     */
+    private final Runnable stop = () -> {};
+
+    /**
+     * The thread that processes the commands.
+     */
+    private final Thread owner;
+
+    /**
+     * True iff the owner thread stopped (guarded by stopLock, which is held while sending commands).
+     */
+    private volatile boolean stopped;
+    private final ReentrantLock stopLock = new ReentrantLock();
+
+    /**
+     * The snapshot published after the last command.
+     */
+    private volatile TableSnapshot snapshot;
+
+    /**
+     * Constructor for testing.
+     *
+     * @param env        - the game environment objects.
+     * @param slotToCard - mapping between a slot and the card placed in it (-1 if none).
+     * @param cardToSlot - mapping between a card and the slot it is in (-1 if none).
+     */
+    public ActorTable(Env env, int[] slotToCard, int[] cardToSlot) {
+        super(env, slotToCard, cardToSlot);
+        clock = env.clock;
+        commandSignal = clock.newSignal();
+        snapshot = super.snapshot();
+        owner = env.newThread(this::processCommands, "table");
+        owner.start();
+    }
+
+    /**
+     * Constructor for actual usage.
+     *
+     * @param env - the game environment objects.
+     */
+    public ActorTable(Env env) {
+        this(env, emptyMapping(env.config.tableSize), emptyMapping(env.config.deckSize));
+    }
+
+    /**
+     * The main loop of the owner thread.
+     */
+    private void processCommands() {
+        try {
+            for (Runnable command = nextCommand(); command != stop; command = nextCommand())
+                command.run();
+        } catch (InterruptedException ignored) {
+        } finally {
+            stopLock.lock();
+            try {
+                stopped = true;
+                for (Runnable command = mailbox.poll(); command != null; command = mailbox.poll())
+                    command.run(); // sent before the table stopped
+            } finally {
+                stopLock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Waits for the next command (called by the owner thread).
+     *
+     * @return - the command.
+     * @throws InterruptedException - if interrupted while waiting.
+     */
+    private Runnable nextCommand() throws InterruptedException {
+        Runnable command;
+        while ((command = mailbox.poll()) == null)
+            commandSignal.await(Long.MAX_VALUE);
+        return command;
+    }
+
+    /**
+     * Sends a command to the owner thread (called with stopLock held).
+     *
+     * @param command - the command.
+     */
+    private void send(Runnable command) {
+        mailbox.add(command);
+        commandSignal.raise();
+    }
+
+    /**
+     * Runs a command on the owner thread and waits for its result (or runs it at once if called by the owner).
+     *
+     * @param command - the command.
+     * @param locking - what to run instead if the owner thread stopped.
+     * @return - the result of the command.
+     */
+    private <T> T call(Supplier<T> command, Supplier<T> locking) {
+        if (Thread.currentThread() == owner) return command.get();
+
+        Clock.Signal doneSignal = clock.newSignal();
+        FutureTask<T> task = new FutureTask<>(() -> {
+            T result = command.get();
+            snapshot = super.snapshot();
+            return result;
+        }) {
+            @Override
+            protected void done() {
+                doneSignal.raise();
+            }
+        };
+        stopLock.lock();
+        try {
+            if (stopped) return locking.get();
+            send(task);
+        } finally {
+            stopLock.unlock();
+        }
+
+        boolean interrupted = false;
+        try {
+            while (true) {
+                try {
+                    if (task.isDone()) return task.get();
+                    doneSignal.await(Long.MAX_VALUE);
+                } catch (InterruptedException e) {
+                    interrupted = true; // the command was sent, so its result is awaited anyway
+                }
+            }
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : new RuntimeException(e.getCause());
+        } finally {
+            if (interrupted) Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public void update(int slot, Runnable command) {
+        call(() -> {
+            command.run();
+            return null;
+        }, () -> {
+            super.update(slot, command);
+            return null;
+        });
+    }
+
+    @Override
+    public void update(int[] slots, Runnable command) {
+        call(() -> {
+            command.run();
+            return null;
+        }, () -> {
+            super.update(slots, command);
+            return null;
+        });
+    }
+
+    @Override
+    public void placeCard(int card, int slot) {
+        Supplier<Object> place = () -> {
+            super.placeCard(card, slot);
+            return null;
+        };
+        call(place, place);
+    }
+
+    @Override
+    public void removeCard(int slot) {
+        Supplier<Object> remove = () -> {
+            super.removeCard(slot);
+            return null;
+        };
+        call(remove, remove);
+    }
+
+    @Override
+    public void placeCards(int[] cards, int[] slots) {
+        Supplier<Object> place = () -> {
+            super.placeCards(cards, slots);
+            return null;
+        };
+        call(place, place);
+    }
+
+    @Override
+    public void removeCards(int[] slots) {
+        Supplier<Object> remove = () -> {
+            super.removeCards(slots);
+            return null;
+        };
+        call(remove, remove);
+    }
+
+    @Override
+    public void placeToken(int player, int slot) {
+        Supplier<Object> place = () -> {
+            super.placeToken(player, slot);
+            return null;
+        };
+        call(place, place);
+    }
+
+    @Override
+    public boolean removeToken(int player, int slot) {
+        Supplier<Boolean> remove = () -> super.removeToken(player, slot);
+        return call(remove, remove);
+    }
+
+    @Override
+    public int[] removeTokens(int slot) {
+        Supplier<int[]> remove = () -> super.removeTokens(slot);
+        return call(remove, remove);
+    }
+
+    @Override
+    public long newEpoch() {
+        Supplier<Long> start = super::newEpoch;
+        return call(start, start);
+    }
+
+    @Override
+    public TableSnapshot snapshot() {
+        return stopped ? super.snapshot() : snapshot;
+    }
+
+    @Override
+    public void terminate() {
+        stopLock.lock();
+        try {
+            if (!stopped) send(stop);
+        } finally {
+            stopLock.unlock();
+        }
+    }
+}
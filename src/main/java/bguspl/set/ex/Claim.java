@@ -0,0 +1,88 @@
+package bguspl.set.ex;
+
+import bguspl.set.Env;
+
+/**
+ * A player's claim of a set, validated off the dealer's thread (see Dealer::claim).
+ * A claim is a snapshot of the cards under the player's tokens, with the versions their slots had when the cards were
+ * read, and the verdict of testing them. The dealer commits a claim only if it is current, i.e. none of its slots
+ * changed since the snapshot; otherwise the verdict may be about other cards, and the claim is rejected as stale.
+ */
+public class Claim {
+
+    /**
+     * The id of the claiming player.
+     */
+    public final int player;
+
+    /**
+     * The claimed cards, and the slots they were read from together with the versions of these slots.
+     */
+    public final int[] cards;
+    private final int[] slots;
+    private final long[] versions;
+
+    /**
+     * The version of the table before the snapshot (if the table did not change since, the claim is current).
+     */
+    private final long tableVersion;
+
+    /**
+     * True iff the player had a token on featureSize cards when the snapshot was taken.
+     */
+    public final boolean complete;
+
+    /**
+     * True iff the claimed cards form a legal set.
+     */
+    public final boolean legal;
+
+    private Claim(Env env, Table table, int player) {
+        this.player = player;
+        int size = env.config.featureSize;
+        cards = new int[size];
+        slots = new int[size];
+        versions = new long[size];
+        tableVersion = table.version();
+
+        int count = 0;
+        boolean cardsPresent = true;
+        for (int slot : table.tokenSlots(player))
+            if (count < size) {
+                versions[count] = table.slotVersion(slot); // before the card, see Table::slotVersion
+                int card = table.slotToCard[slot];
+                cardsPresent &= card != -1;
+                slots[count] = slot;
+                cards[count++] = card;
+            }
+        complete = cardsPresent && count == size;
+        legal = complete && env.util.testSet(cards);
+    }
+
+    /**
+     * Snapshots the claim of a player and tests it (called by a worker thread).
+     *
+     * @param env    - the game environment object.
+     * @param table  - the table object.
+     * @param player - the id of the claiming player.
+     * @return - the validated claim.
+     */
+    public static Claim validate(Env env, Table table, int player) {
+        return new Claim(env, table, player);
+    }
+
+    /**
+     * Checks that no slot of the claim changed since its snapshot (called by the dealer's thread, the only writer of
+     * the cards, so the answer holds until the dealer changes the table).
+     *
+     * @param table - the table object.
+     * @return - true iff the verdict of the claim is still about the cards on the table.
+     */
+    public boolean isCurrent(Table table) {
+        if (!complete) return false;
+        if (table.version() == tableVersion) return true;
+        for (int i = 0; i < slots.length; i++)
+            if (table.slotVersion(slots[i]) != versions[i]) return false;
+        return true;
+    }
+}
@@ -0,0 +1,139 @@
+package bguspl.set.ex;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * The mailbox of the set claims of the players, read by the dealer in the order the claims were submitted.
+ * Claims are records of a player id and a stamp, kept in a bounded ring that many players may write to and only the
+ * dealer reads from. Each player also has an atomic claim state (the stamp of its pending claim, or NONE), so a claim
+ * is invalidated in O(1) by clearing the state, and all the claims at once by raising the stamp up to which claims are
+ * stale (see clear). Invalidated records stay in the ring and are skipped when polled.
+ *
+ * @inv pending == the number of players whose state is not NONE (stale states included, until polled)
+ */
+public class ClaimMailbox {
+
+    /**
+     * The claim state of a player with no pending claim.
+     */
+    private static final long NONE = 0;
+
+    /**
+     * The ring of claim records. Slot i of the ring holds a record iff sequences[i] == position + 1, and may be written
+     * iff sequences[i] == position, where position is the (ever increasing) position the slot is used for.
+     */
+    private final int[] recordPlayers;
+    private final long[] recordStamps;
+    private final AtomicLongArray sequences;
+    private final int mask;
+
+    /**
+     * The next position to write to (shared by the players) and to read from (owned by the dealer).
+     */
+    private final AtomicLong tail = new AtomicLong();
+    private long head;
+
+    /**
+     * The stamp of the pending claim of each player (NONE if none).
+     */
+    private final AtomicLongArray states;
+    private final AtomicLong stamps = new AtomicLong(NONE);
+    private final AtomicInteger pending = new AtomicInteger();
+
+    /**
+     * The last stamp given before the last clear: the claims with this stamp or an older one are stale.
+     */
+    private volatile long cleared = NONE;
+
+    /**
+     * @param players - the number of players.
+     */
+    public ClaimMailbox(int players) {
+        // a player has at most one pending claim, the extra room is for invalidated records not yet skipped
+        int capacity = Integer.highestOneBit(Math.max(4 * players, 2) - 1) << 1;
+        recordPlayers = new int[capacity];
+        recordStamps = new long[capacity];
+        sequences = new AtomicLongArray(capacity);
+        for (int i = 0; i < capacity; i++)
+            sequences.set(i, i);
+        mask = capacity - 1;
+        states = new AtomicLongArray(players);
+    }
+
+    /**
+     * Submits a claim of a player (called by the player's thread).
+     *
+     * @param player - the id of the player.
+     */
+    public void submit(int player) {
+        long stamp = stamps.incrementAndGet();
+        if (states.getAndSet(player, stamp) == NONE)
+            pending.incrementAndGet();
+
+        long position;
+        int slot;
+        while (true) {
+            position = tail.get();
+            slot = (int) position & mask;
+            long sequence = sequences.get(slot);
+            if (sequence == position && tail.compareAndSet(position, position + 1))
+                break;
+            if (sequence < position) // the ring is full until the dealer skips the invalidated records
+                Thread.yield();
+        }
+        recordPlayers[slot] = player;
+        recordStamps[slot] = stamp;
+        sequences.set(slot, position + 1); // publishes the record
+    }
+
+    /**
+     * Takes the next claim that is still valid (called by the dealer's thread only).
+     *
+     * @return - the id of the claiming player, or -1 if there is no claim to take.
+     */
+    public int poll() {
+        while (true) {
+            int slot = (int) head & mask;
+            if (sequences.get(slot) != head + 1) return -1;
+            int player = recordPlayers[slot];
+            long stamp = recordStamps[slot];
+            sequences.set(slot, head + mask + 1); // frees the slot for the next round of the ring
+            head++;
+            if (states.compareAndSet(player, stamp, NONE)) {
+                pending.decrementAndGet();
+                if (stamp > cleared) return player;
+            }
+        }
+    }
+
+    /**
+     * Invalidates the pending claim of a player, if any.
+     *
+     * @param player - the id of the player.
+     * @return - true iff the player had a pending claim.
+     */
+    public boolean invalidate(int player) {
+        long stamp = states.get(player);
+        if (stamp > cleared && states.compareAndSet(player, stamp, NONE)) {
+            pending.decrementAndGet();
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Invalidates all the pending claims, in O(1): their states are left as they are, and discarded when polled.
+     */
+    public void clear() {
+        cleared = stamps.get();
+    }
+
+    /**
+     * @return - true iff no player has a pending claim (a claim invalidated by clear counts until it is polled).
+     */
+    public boolean isEmpty() {
+        return pending.get() == 0;
+    }
+}
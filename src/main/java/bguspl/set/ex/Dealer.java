@@ -1,9 +1,11 @@
 package bguspl.set.ex;
 
+import bguspl.set.Clock;
 import bguspl.set.Env;
 import java.util.*;
-import java.util.concurrent.ConcurrentLinkedQueue;
-import java.util.stream.Collectors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 import java.util.stream.IntStream;
 
 
@@ -25,9 +27,14 @@ public class Dealer implements Runnable {
     
 
     /**
-     * The list of card ids that are left in the dealer's deck.
+     * The card ids that are left in the dealer's deck.
      */
-    private final List<Integer> deck;
+    private final Deck deck;
+
+    /**
+     * Tracks whether a legal set is left among the cards in the deck and on the table.
+     */
+    private final EndGameTracker endGameTracker;
 
     /**
      * True iff game should be terminated.
@@ -39,13 +46,32 @@ public class Dealer implements Runnable {
      */
     private long reshuffleTime = Long.MAX_VALUE;
 
+    /**
+     * The resolution (in milliseconds) of the countdown display in warning mode.
+     */
+    private static final long WARN_TICK_MILLIS = 10;
+
+    /**
+     * The resolution (in milliseconds) of the countdown and freeze displays otherwise.
+     */
+    private static final long TICK_MILLIS = 1000;
+
     // lock
     public Object dealerLock = new Object();
 
-    private int[] cardsToCheck; // check if to make private and use set function 
+    /**
+     * The dealer sleeps on wakeSignal until its next deadline or until woken (see wakeUp).
+     */
+    private final Clock.Signal wakeSignal;
+
     public int checkPlayer;
-    public ConcurrentLinkedQueue<Player> playersToCheckQueue = new ConcurrentLinkedQueue<>(); //Thread safe Q for the order which the dealer will check the players
-    public boolean canPlay; //flag that says whether players can play or. didnt use it in player run yet!
+    public final ClaimMailbox claimMailbox; //Lock free mailbox for the order which the dealer will check the players
+
+    /**
+     * The validated claim of each player, set before the player's id is submitted to the claim mailbox.
+     */
+    private final AtomicReferenceArray<Claim> claims;
+    public volatile boolean canPlay; //flag that says whether players can play or. didnt use it in player run yet!
     private long timeLeft;
     private long startTime;
     public long currentTime;
@@ -57,10 +83,13 @@ public class Dealer implements Runnable {
         this.env = env;
         this.table = table;
         this.players = players;
-        deck = IntStream.range(0, env.config.deckSize).boxed().collect(Collectors.toList());
+        deck = new Deck(env.config.deckSize);
+        endGameTracker = new EndGameTracker(env);
+        claimMailbox = new ClaimMailbox(env.config.players);
+        claims = new AtomicReferenceArray<>(env.config.players);
+        wakeSignal = env.clock.newSignal();
         terminate = false;
         canPlay = false;
-        cardsToCheck = new int[env.config.featureSize];
         warn = false;
     }
 
@@ -73,12 +102,11 @@ public class Dealer implements Runnable {
         dealerThread = Thread.currentThread();
 
         for(int i = 0; i < env.config.players; i++) {
-            Thread playerThread = new Thread( players[i], env.config.playerNames[i]);
+            Thread playerThread = env.newThread(players[i], env.config.playerNames[i]);
             playerThread.start();
         }
         
         while (!shouldFinish()) {
-            Collections.shuffle(deck);  // Shuffle deck
             placeCardsOnTable();
             updateTimerDisplay(true);
             canPlay = true;
@@ -91,9 +119,7 @@ public class Dealer implements Runnable {
         }
 
         announceWinners();
-        if (!terminate) {
-            terminate();
-        }
+        terminate(); // also when terminated from outside, in case it was before the players started
         env.logger.info("thread " + Thread.currentThread().getName() + " terminated.");
     }
 
@@ -101,7 +127,7 @@ public class Dealer implements Runnable {
      * The inner loop of the dealer thread that runs as long as the countdown did not time out.
      */
     private void timerLoop() {
-        while (!terminate && System.currentTimeMillis() < reshuffleTime) {
+        while (!shouldFinish() && env.clock.currentTimeMillis() < reshuffleTime) {
             sleepUntilWokenOrTimeout();
             updateTimerDisplay(false);
             removeCardsFromTable();
@@ -116,10 +142,12 @@ public class Dealer implements Runnable {
         // TODO implement
         // end thread proccesses in proper fashion
         terminate = true;
+        wakeUp();
 
         for(int i = env.config.players - 1; i >= 0; i--) {
             players[i].terminate();
         }
+        table.terminate();
     }
 
     /**
@@ -128,119 +156,199 @@ public class Dealer implements Runnable {
      * @return true iff the game should be finished.
      */
     private boolean shouldFinish() {
-        return terminate || env.util.findSets(deck, 1).size() == 0;
+        return terminate || !endGameTracker.hasSets();
     }
 
 /**
  * Checks cards should be removed from the table and removes them.
+ * The pending claims were already validated by worker threads (see claim), so the dealer only commits them in the
+ * order they arrived: an incomplete claim (a token of the player was removed meanwhile) sends its player back to
+ * placing tokens, a claim whose slots changed since its snapshot is stale and rejected (its player claims again), a legal set
+ * is collected and an illegal one penalized. The vacated slots are then refilled, and the hints and
+ * countdown updated, once for all the claims committed.
  */
 private void removeCardsFromTable() {
     // TODO implement
-    if(!playersToCheckQueue.isEmpty()){
-        Player currPlayer = playersToCheckQueue.poll(); // The player that the dealer checks his set
-        ArrayList<Player> kickPlayers = new ArrayList<>(); // store all players that needs to be kicked out of the playerToCheckQ
-        int i = 0;
-        for(int slot = 0; slot < env.config.tableSize; slot++){
- 
-            if(table.playersTokensLocations[currPlayer.id][slot] == 1){
-                cardsToCheck[i] = table.slotToCard[slot];
-                i++;
-            }
-        }
-        if (env.util.testSet(cardsToCheck)) // if legal set
-        { 
-            for(int card : cardsToCheck)
-            {
-                int slot = table.cardToSlot[card];
-                synchronized(table.lock[slot]){ //locks the cell where the dealer now performs an action
-                
-                    for (Player player : players){
-                        int id = player.id;
-                        // if other players had a shared card, remove their token and remove them from playersToCheckQueue, since set is no longer relevant
-                        if(table.playersTokensLocations[id][slot] == 1){
-                            table.removeToken(id, slot);
-                            player.tokensLeft++;
-                            if (playersToCheckQueue.contains(player)){
-                                playersToCheckQueue.remove(player);
-                                kickPlayers.add(player);
-                                
-                            }
-                        } 
-                    }
-                    table.removeCard(slot); // remove card from table
-                }
-            }   
-            if (env.config.hints)
-                table.hints();
-            currPlayer.point(); //player gets a point
-            updateTimerDisplay(true);
-            synchronized(currPlayer){
-                currPlayer.notify();
-            }
-            for(Player player : kickPlayers){
-                if(player.id != currPlayer.id){
-                    player.freezeTime = 0;
-                    synchronized(player){
-                        player.notify(); // players who dont have set anymore will now continue to play
-                    }
-                }
-            }
+    boolean collected = false;
+    for (int id = claimMailbox.poll(); id != -1; id = claimMailbox.poll()) {
+        Player currPlayer = players[id];
+        Claim claim = claims.getAndSet(id, null);
+        if (claim != null && !claim.complete) { // the player places the missing tokens (see Player::tokensLeft)
+            currPlayer.freezeTime = 0;
+            currPlayer.wakeUp();
+        } else if (claim == null || !claim.isCurrent(table)) { // stale: the player's tokens stay and it claims again
+            currPlayer.freezeTime = 0;
+            currPlayer.wakeUp();
+        } else if (claim.legal) { // if legal set
+            collectSet(currPlayer, claim.cards);
+            collected = true;
         } else {
             currPlayer.penalty(); //player gets penalized
-            synchronized(currPlayer){
-                currPlayer.notify();
+            currPlayer.wakeUp();
+        }
+    }
+    if (collected) {
+        placeCardsOnTable(); // refill all the vacated slots at once
+        if (env.config.hints)
+            table.hints();
+        updateTimerDisplay(true);
+    }
+}
+
+/**
+ * Submits the claim of a player (called by the player's thread). The claim is snapshot and tested on a worker thread
+ * (a participant of the game on its clock, see Clock::participant), then queued in the claim mailbox and the dealer
+ * woken up to commit it.
+ *
+ * @param player - the id of the claiming player.
+ */
+public void claim(int player) {
+    ForkJoinPool.commonPool().execute(env.clock.participant(() -> {
+        claims.set(player, Claim.validate(env, table, player));
+        claimMailbox.submit(player);
+        wakeUp();
+    }));
+}
+
+/**
+ * Removes a legal set from the table and awards its player.
+ *
+ * @param currPlayer - the player that claimed the set.
+ * @param cards      - the cards of the set.
+ */
+private void collectSet(Player currPlayer, int[] cards) {
+    ArrayList<Player> kickPlayers = new ArrayList<>(); // store all players whose claims were invalidated
+    endGameTracker.collected(cards);
+    int[] slots = Arrays.stream(cards).map(card -> table.cardToSlot[card]).toArray();
+    table.delay(); // before locking the slots, so the players do not wait for their locks meanwhile
+    table.update(slots, () -> { //the dealer performs its action on the cells atomically
+        for (int slot : slots) {
+            // if other players had a shared card, remove their token and invalidate their claim, since set is no longer relevant
+            for (int id : table.removeTokens(slot)){
+                if (claimMailbox.invalidate(id)){
+                    kickPlayers.add(players[id]);
+                }
             }
         }
-    }    
-}   
+        table.removeCards(slots); // remove the cards from table, all at once
+    });
+    currPlayer.point(); //player gets a point
+    currPlayer.wakeUp();
+    for(Player player : kickPlayers){
+        if(player.id != currPlayer.id){
+            player.freezeTime = 0;
+            player.wakeUp(); // players who dont have set anymore will now continue to play
+        }
+    }
+}
 
     /**
      * Check if any cards can be removed from the deck and placed on the table.
      */
-    private void placeCardsOnTable() {
+    void placeCardsOnTable() {
         // TODO implement 
-        int i = 0;
-        while (!deck.isEmpty() & table.countCards() < env.config.tableSize) { 
-            if (table.slotToCard[i] == null) {
-                int card = deck.remove(0);
-                table.placeCard(card, i);
-            }
-            i++;
+        int[] slots = table.freeSlots();
+        if (deck.isEmpty() || slots.length == 0) return;
+
+        int[] cards = new int[Math.min(slots.length, deck.size())];
+        int[] completing = completingCards(slots.length); // first the cards that make a set on the table, if needed
+        for (int i = 0; i < cards.length; i++) {
+            if (i < completing.length) deck.draw(cards[i] = completing[i]);
+            else cards[i] = deck.draw(); // a random card, so the deck needs no shuffling
+            int other = i + ThreadLocalRandom.current().nextInt(slots.length - i); // a random free slot for it, so
+            int slot = slots[other];                                               // the set dealt is not in
+            slots[other] = slots[i];                                               // predictable slots
+            slots[i] = slot;
         }
+        table.placeCards(cards, Arrays.copyOf(slots, cards.length)); // deal them all at once
+    }
+
+    /**
+     * Picks deck cards that complete a legal set on the table, if the table has no set. The set is picked at random
+     * among the sets of the table and deck cards that need at most as many deck cards as there are empty slots, so
+     * the table has a set after dealing whenever dealing can make one (and no turn is wasted on a dead table).
+     *
+     * @param free - the number of empty slots on the table.
+     * @return - the deck cards to deal first (none if the table has a set or no set can be completed).
+     */
+    private int[] completingCards(int free) {
+        if (table.countSets() > 0) return new int[0];
+
+        boolean[] inDeck = new boolean[env.config.deckSize];
+        int[] deckCards = deck.toArray();
+        for (int card : deckCards)
+            inDeck[card] = true;
+        int[] cards = Arrays.copyOf(deckCards, deckCards.length + env.config.tableSize);
+        int size = deckCards.length;
+        for (int card : table.slotToCard)
+            if (card != -1) cards[size++] = card;
+
+        // reservoir sampling of one set out of the stream of the completable sets
+        int[] picked = new int[0];
+        int completable = 0;
+        Iterator<int[]> sets = env.util.streamSets(Arrays.copyOf(cards, size)).iterator();
+        while (sets.hasNext()) {
+            int[] missing = Arrays.stream(sets.next()).filter(card -> inDeck[card]).toArray();
+            if (missing.length <= free && ThreadLocalRandom.current().nextInt(++completable) == 0)
+                picked = missing;
+        }
+        return picked;
     }
 
 /**
- * Sleep for a fixed amount of time or until the thread is awakened for some purpose.
+ * Sleep until the next deadline (see nextWakeTime) or until the thread is awakened for some purpose (see wakeUp).
  */
 private void sleepUntilWokenOrTimeout() {
-    // TODO implement
+    try {
+        if (!terminate && claimMailbox.isEmpty())
+            wakeSignal.await(nextWakeTime());
+    } catch (InterruptedException ignored) {}
+}
 
-    timeLeft = reshuffleTime - System.currentTimeMillis();
-    if (playersToCheckQueue.isEmpty()) {
-        if (!warn) {
-            try{
-                Thread.sleep(1000);
-            } catch (InterruptedException e) {}
-        } else {
-            try{
-                Thread.sleep(10);
-            } catch (InterruptedException e) {}
-        }
+/**
+ * Wakes the dealer up (e.g. when a player claims a set), if it is sleeping.
+ */
+public void wakeUp() {
+    wakeSignal.raise();
+}
+
+/**
+ * Computes when the dealer next has a job to do with no one waking it up: the reshuffle deadline, the next change of
+ * the countdown display (including entering warning mode) and the next change of a player's freeze display.
+ *
+ * @return - the time (in milliseconds) at which the dealer should wake up.
+ */
+long nextWakeTime() {
+    long now = env.clock.currentTimeMillis();
+    long wakeTime = reshuffleTime;
+    long remaining = reshuffleTime - now;
+    if (remaining > 0) {
+        long warningMillis = env.config.turnTimeoutWarningMillis;
+        long tick = remaining <= warningMillis ? WARN_TICK_MILLIS : TICK_MILLIS;
+        wakeTime = Math.min(wakeTime, reshuffleTime - (remaining - 1) / tick * tick);
+        if (remaining > warningMillis)
+            wakeTime = Math.min(wakeTime, reshuffleTime - warningMillis);
     }
+    for (Player player : players)
+        if (player.isFrozen) {
+            long frozen = player.unfreezeTime - now;
+            wakeTime = Math.min(wakeTime, frozen <= 0 ? now : player.unfreezeTime - (frozen - 1) / TICK_MILLIS * TICK_MILLIS);
+        }
+    return wakeTime;
 }
 
 /**
  * Reset and/or update the countdown and the countdown display.
  */
-private void updateTimerDisplay(boolean reset) {
+void updateTimerDisplay(boolean reset) {
     if (reset) {
-        startTime = System.currentTimeMillis();
+        startTime = env.clock.currentTimeMillis();
         timeLeft = env.config.turnTimeoutMillis;
         reshuffleTime = startTime + timeLeft;
         warn = false;
         env.ui.setCountdown(timeLeft, warn);
     } else {
-        currentTime = System.currentTimeMillis();
+        currentTime = env.clock.currentTimeMillis();
         timeLeft = reshuffleTime - currentTime;
         warn = timeLeft <= env.config.turnTimeoutWarningMillis;
         if(timeLeft <= 0 ){
@@ -250,7 +358,8 @@ private void updateTimerDisplay(boolean reset) {
 
         for(Player player : players){
             if(player.isFrozen){
-                long freezeDisplay = (long) Math.ceil((double) (player.unfreezeTime - currentTime) / 1000) * 1000;
+                long freezeDisplay = player.freezeEpoch != table.epoch() ? 0 // frozen before the table was reset
+                        : (long) Math.ceil((double) (player.unfreezeTime - currentTime) / 1000) * 1000;
 
                 if(freezeDisplay <= 0){
                     player.isFrozen = false;
@@ -268,33 +377,15 @@ private void updateTimerDisplay(boolean reset) {
  */
 private void removeAllCardsFromTable() {
     // TODO implement 
-    for (Integer card : table.slotToCard) { 
-        if (card != null) {
-            deck.add(card); // add card back to deck 
-            int slot = table.cardToSlot[card];
-            synchronized(table.lock[slot]){ // dont need synchronized because of canPlay
-                table.removeCard(slot); // remove card from slot on table
-                for(int player = 0; player < env.config.players; player++){
-                    for(int slots = 0; slots < env.config.tableSize; slots++){
-                        if(table.playersTokensLocations[player][slots] == 1){
-                            table.removeToken(player,slots);
-                        }
-                    }  
-                }
-            }
-        }
-    }
-    for(Player player : players){
-        player.getKeysPressed().clear(); // cleans up all the keys that were placed since we reset the table
-        player.tokensLeft = env.config.featureSize;
-        player.penalized = false;
-        player.freezeTime = 0;
-        if (player.isFrozen){
-            env.ui.setFreeze(player.id, 0);
-            player.isFrozen = false;
-        }
-    }
-    playersToCheckQueue.clear();
+    int[] slots = IntStream.range(0, env.config.tableSize).filter(slot -> table.slotToCard[slot] != -1).toArray();
+    if (slots.length > 0) table.delay(); // before locking the slots, so the players do not wait for their locks meanwhile
+    table.update(IntStream.range(0, env.config.tableSize).toArray(), () -> { // no token is placed meanwhile
+        table.newEpoch(); // removes all the tokens, the players reset their own state when they see the new epoch
+        for (int slot : slots)
+            deck.add(table.slotToCard[slot]); // add card back to deck 
+        table.removeCards(slots); // remove the cards from the table, all at once
+    });
+    claimMailbox.clear(); // the claims of the old epoch are discarded when polled
 }
 
 /**
@@ -322,7 +413,7 @@ private void announceWinners() {
 
 private void activatePlayers() {
     for (Player player : players) {
-        synchronized(player){player.notify();}
+        player.wakeUp();
     }
 }
 }
@@ -0,0 +1,94 @@
+package bguspl.set.ex;
+
+import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * The dealer's deck, as a primitive array of card ids.
+ * The cards left in the deck are the first size entries of the array. Drawing is one step of a Fisher-Yates shuffle:
+ * a uniformly random card among the cards left is swapped with the last one and taken off the end, so the deck never
+ * has to be shuffled up front and every draw is O(1). Cards returned to the deck are appended at the end.
+ *
+ * @inv 0 <= size <= cards.length
+ */
+public class Deck {
+
+    /**
+     * The card ids, of which the first size are in the deck (in no particular order).
+     */
+    private final int[] cards;
+
+    /**
+     * The number of cards left in the deck.
+     */
+    private int size;
+
+    /**
+     * Creates a full deck.
+     *
+     * @param deckSize - the number of cards in the game.
+     */
+    public Deck(int deckSize) {
+        cards = new int[deckSize];
+        Arrays.setAll(cards, card -> card);
+        size = deckSize;
+    }
+
+    /**
+     * @return - true iff no card is left in the deck.
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * @return - the number of cards left in the deck.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Draws a uniformly random card out of the deck.
+     *
+     * @return - the id of the card drawn.
+     * @pre - !isEmpty()
+     */
+    public int draw() {
+        int index = ThreadLocalRandom.current().nextInt(size);
+        int card = cards[index];
+        cards[index] = cards[--size];
+        cards[size] = card;
+        return card;
+    }
+
+    /**
+     * Draws a given card out of the deck.
+     *
+     * @param card - the id of the card.
+     * @pre - the card is in the deck.
+     */
+    public void draw(int card) {
+        int index = 0;
+        while (cards[index] != card) index++;
+        cards[index] = cards[--size];
+        cards[size] = card;
+    }
+
+    /**
+     * Returns a card to the deck.
+     *
+     * @param card - the id of the card.
+     * @pre - the card is not in the deck.
+     */
+    public void add(int card) {
+        cards[size++] = card;
+    }
+
+    /**
+     * @return - a copy of the ids of the cards left in the deck (e.g. for the set queries of Util).
+     */
+    public int[] toArray() {
+        return Arrays.copyOf(cards, size);
+    }
+}
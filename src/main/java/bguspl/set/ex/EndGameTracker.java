@@ -0,0 +1,77 @@
+package bguspl.set.ex;
+
+import bguspl.set.Env;
+
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * This class tracks whether a legal set still exists among the cards that are still in the game (i.e. in the deck
+ * or on the table).
+ * Dealing cards and returning them to the deck only moves cards between the deck and the table, so the tracker is
+ * only updated when a set is collected. It keeps one legal set as a witness, and searches for a new witness only
+ * after a collected card invalidated the current one.
+ *
+ * @inv witness == null || all cards of witness are in the game
+ */
+public class EndGameTracker {
+
+    /**
+     * The game environment object.
+     */
+    private final Env env;
+
+    /**
+     * inGame[card] is true iff the card was not collected yet.
+     */
+    private final boolean[] inGame;
+
+    /**
+     * A legal set among the cards in the game (null if it should be searched for again).
+     */
+    private int[] witness;
+
+    /**
+     * True iff no legal set is left among the cards in the game (which cannot change once it happens).
+     */
+    private boolean exhausted;
+
+    public EndGameTracker(Env env) {
+        this.env = env;
+        inGame = new boolean[env.config.deckSize];
+        Arrays.fill(inGame, true);
+        witness = null;
+        exhausted = false;
+    }
+
+    /**
+     * Removes collected cards from the game.
+     *
+     * @param cards - the ids of the collected cards.
+     */
+    public void collected(int[] cards) {
+        for (int card : cards) {
+            inGame[card] = false;
+            if (witness != null)
+                for (int witnessCard : witness)
+                    if (witnessCard == card) {
+                        witness = null;
+                        break;
+                    }
+        }
+    }
+
+    /**
+     * Checks whether there is still a legal set among the cards in the game.
+     *
+     * @return - true iff the cards in the deck and on the table contain a legal set.
+     */
+    public boolean hasSets() {
+        if (witness == null && !exhausted) {
+            int[] cards = IntStream.range(0, inGame.length).filter(card -> inGame[card]).toArray();
+            witness = env.util.streamSets(cards).findFirst().orElse(null);
+            exhausted = witness == null;
+        }
+        return !exhausted;
+    }
+}
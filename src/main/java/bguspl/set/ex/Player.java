@@ -1,5 +1,6 @@
 package bguspl.set.ex;
 
+import bguspl.set.Clock;
 import bguspl.set.Env;
 
 import java.util.ArrayList;
@@ -64,10 +65,22 @@ private int score;
 //More Fields
 private ArrayBlockingQueue<Integer> keysPressed; 
 public long freezeTime;
-public int tokensLeft;
 public boolean penalized;
 public long unfreezeTime;
 public boolean isFrozen;
+public long freezeEpoch; // the table epoch of the last freeze
+
+/**
+ * The table epoch the player's tokens count, penalty and key presses belong to (see syncEpoch).
+ */
+private long epoch;
+
+/**
+ * The player waits on wakeSignal for the dealer (to start the round or to judge its claim), see awaitDealer, and on
+ * keySignal for a key press, see awaitKey. Signals of the game clock, so a virtual clock knows when the player waits.
+ */
+private final Clock.Signal wakeSignal;
+private final Clock.Signal keySignal;
 
 /**
  * The class constructor.
@@ -86,11 +99,12 @@ public Player(Env env, Dealer dealer, Table table, int id, boolean human) {
     this.id = id;
     this.human = human;
     this.score = 0;
-    tokensLeft = env.config.featureSize;
     freezeTime = 0;
     penalized = false;
     isFrozen = false;
     keysPressed = new ArrayBlockingQueue<>(env.config.featureSize);
+    wakeSignal = env.clock.newSignal();
+    keySignal = env.clock.newSignal();
 }
 
 /**
@@ -105,70 +119,97 @@ public void run() {
     while (!terminate) {
         // TODO implement main player loop
 
-        while (tokensLeft > 0 | penalized) {
-            if (!dealer.canPlay) {
-                synchronized(this){
-                    try {
-                        wait();
-                    } catch (InterruptedException e) {
-                        if (terminate) {break;}
-                    }
-                }
-            }
-            if (!keysPressed.isEmpty()) { // see if better to wait until key is pressed
-                int slot = -1; 
-                try {
-                    slot = keysPressed.take();
-                } catch (InterruptedException e){}
-                synchronized(table.lock[slot]){
-                    if(table.playersTokensLocations[id][slot] == 1) // if player has token on this slot
-                    {
-                        table.removeToken(id, slot); //removes the token
-                        tokensLeft++;
-                        if (penalized) {
-                            penalized = false;
-                        }
-                    } else if (!penalized & table.slotToCard[slot] != null) {
-                        table.placeToken(id, slot); // adds the player's token to the slot on the table
-                        tokensLeft--;
-                    } 
-                }
-            }   
-        }
-        dealer.playersToCheckQueue.offer(this);
-        
-             
-        synchronized(this){
+        syncEpoch();
+        while (!terminate & (tokensLeft() > 0 | penalized)) {
+            int slot;
             try {
-                dealer.dealerThread.interrupt();
-                if (!terminate) {wait();}
+                while (!dealer.canPlay && !terminate)
+                    awaitDealer();
+                slot = awaitKey();
             } catch (InterruptedException e) {
-                if (terminate) {break;}
+                continue; // the loop condition checks if the player was terminated
             }
+            if (syncEpoch()) continue; // the key may have been pressed before the table was reset
+            table.update(slot, () -> {
+                if (table.epoch() != epoch) // the table was reset since syncEpoch (newEpoch holds every slot lock)
+                    return; // drop the key press, the next syncEpoch catches up
+                if(table.hasToken(id, slot)) // if player has token on this slot
+                {
+                    table.removeToken(id, slot); //removes the token
+                    if (penalized) {
+                        penalized = false;
+                    }
+                } else if (!penalized & table.slotToCard[slot] != -1) {
+                    table.placeToken(id, slot); // adds the player's token to the slot on the table
+                }
+            });
         }
-
+        if (terminate) break;
+        resetWakeUp(); // a wake up from now on is the dealer's answer to this claim
+        dealer.claim(id);
         try {
-            Thread.sleep(freezeTime);
+            awaitDealer();
+        } catch (InterruptedException e) {
+            if (terminate) {break;}
+        }
+
+        if (!syncEpoch()) try { // a freeze from before the table was reset is over
+            env.clock.sleep(freezeTime);
         } catch (InterruptedException e) {}
 
         keysPressed.clear(); //Clears player keyPressQ
     }
-    if (!human) try { aiThread.join(); } catch (InterruptedException ignored) {}
+    if (!human) try {
+        aiThread.interrupt(); // it may be sleeping until its next key press
+        aiThread.join();
+    } catch (InterruptedException ignored) {}
     env.logger.info("thread " + Thread.currentThread().getName() + " terminated.");
 }
 
 /**
- * Creates an additional thread for an AI (computer) player. The main loop of this thread repeatedly generates
- * key presses. If the queue of key presses is full, the thread waits until it is not full.
+ * Catches up with a reset of the table (see Table::newEpoch), instead of the dealer resetting every player: the
+ * player's tokens were all removed, so its penalty starts over and its queued key presses are dropped.
+ *
+ * @return - true iff the table was reset since the last call.
+ */
+private boolean syncEpoch() {
+    long current = table.epoch();
+    if (current == epoch) return false;
+    epoch = current;
+    penalized = false;
+    freezeTime = 0;
+    keysPressed.clear();
+    return true;
+}
+
+/**
+ * Counts the tokens the player has left to place, from its tokens on the table (see Table::countTokens) rather than
+ * from a counter of its own, which the dealer would change under other slot locks when it removes the player's tokens.
+ *
+ * @return - the number of tokens left.
+ */
+public int tokensLeft() {
+    return env.config.featureSize - table.countTokens(id);
+}
+
+/**
+ * Creates an additional thread for an AI (computer) player. The main loop of this thread generates a key press every
+ * Config::computerKeyPressMillis on the game clock. If the queue of key presses is full, the key press is dropped (as a
+ * human player's would be, see keyPressed).
  */
 private void createArtificialIntelligence() {
     // note: this is a very, very smart AI (!)
-    aiThread = new Thread(() -> {
+    aiThread = env.newThread(() -> {
         env.logger.info("thread " + Thread.currentThread().getName() + " starting.");
         
         while (!terminate) {
             // TODO implement player key press simulator
             
+            try {
+                env.clock.sleep(env.config.computerKeyPressMillis);
+            } catch (InterruptedException ignored) {
+                continue; // the loop condition checks if the player was terminated
+            }
             Random rand = new Random();
             int randomSlot = rand.nextInt(env.config.tableSize);
             keyPressed(randomSlot);
@@ -184,6 +225,7 @@ private void createArtificialIntelligence() {
 public void terminate() {
     // TODO implement
     terminate = true;
+    wakeUp();
     if(playerThread != null){
         playerThread.interrupt();
         try {
@@ -192,6 +234,42 @@ public void terminate() {
     }
 }
 
+/**
+ * Wakes the player up if it waits for the dealer, or lets its next wait return at once otherwise.
+ */
+public void wakeUp() {
+    wakeSignal.raise();
+}
+
+/**
+ * Waits until woken by the dealer (see wakeUp) or terminated.
+ *
+ * @throws InterruptedException - if interrupted while waiting.
+ */
+private void awaitDealer() throws InterruptedException {
+    if (!terminate) wakeSignal.await(Long.MAX_VALUE); // terminate raises it too
+}
+
+/**
+ * Forgets the wake ups that came before the player started waiting for a new answer of the dealer.
+ */
+private void resetWakeUp() {
+    wakeSignal.clear();
+}
+
+/**
+ * Waits until a key is pressed (see keyPressed).
+ *
+ * @return - the slot corresponding to the key pressed.
+ * @throws InterruptedException - if interrupted while waiting.
+ */
+private int awaitKey() throws InterruptedException {
+    Integer slot;
+    while ((slot = keysPressed.poll()) == null)
+        keySignal.await(Long.MAX_VALUE);
+    return slot;
+}
+
 /**
  * This method is called when a key is pressed.
  *
@@ -199,7 +277,8 @@ public void terminate() {
  */
 public void keyPressed(int slot) {
     // TODO implement - Tomer
-    keysPressed.offer(slot);
+    if (keysPressed.offer(slot))
+        keySignal.raise();
 }
 
 /**
@@ -212,6 +291,7 @@ public void point() {
     // TODO implement
     score++;
     freezeTime = env.config.pointFreezeMillis;
+    freezeEpoch = table.epoch();
     unfreezeTime = freezeTime + dealer.currentTime; 
     env.ui.setFreeze(id, freezeTime);
     isFrozen = true;
@@ -225,6 +305,7 @@ public void point() {
 public void penalty() {
     // TODO implement
     freezeTime = env.config.penaltyFreezeMillis;
+    freezeEpoch = table.epoch();
     unfreezeTime = freezeTime + dealer.currentTime;
     env.ui.setFreeze(id, freezeTime);
     isFrozen = true;
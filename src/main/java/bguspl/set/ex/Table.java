@@ -2,10 +2,16 @@ package bguspl.set.ex;
 
 import bguspl.set.Env;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.lang.invoke.VarHandle;
 import java.util.List;
-import java.util.Objects;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 /**
  * This class contains the data that is visible to the player.
@@ -20,44 +26,107 @@ public class Table {
 private final Env env;
 
 /**
- * Mapping between a slot and the card placed in it (null if none).
+ * Mapping between a slot and the card placed in it (-1 if none).
  */
-protected final Integer[] slotToCard; // card per slot (if any)
+protected final int[] slotToCard; // card per slot (if any)
 
 /**
- * Mapping between a card and the slot it is in (null if none).
+ * Mapping between a card and the slot it is in (-1 if none).
  */
-protected final Integer[] cardToSlot; // slot per card (if any)
+protected final int[] cardToSlot; // slot per card (if any)
 
-protected Integer[][] playersTokensLocations; //Added by tomer, Mapping between a player token and it place on the table.
-public Object[] lock; //lockers for each cell in the table
+/**
+ * The occupied slots (bit slot % 64 of word slot / 64 is set iff a card is in the slot), and their number.
+ * Only changed by the thread that places and removes cards.
+ */
+private final long[] occupied;
+private volatile int cardsCount;
+
+/**
+ * The legal sets currently on the table, maintained incrementally as cards are placed and removed.
+ */
+private final List<int[]> setsOnTable = new ArrayList<>();
+
+/**
+ * The number of legal sets currently on the table (the size of setsOnTable).
+ */
+private volatile int setsCount;
+
+/**
+ * The version of each slot, incremented whenever a card is placed on it or removed from it (see Claim).
+ */
+private final AtomicLongArray slotVersions;
+
+/**
+ * The tokens on the table, as two views of the same bits (changed by CAS, so placing and removing tokens takes no lock):
+ * bit p of word slot * playerWords + p / 64 of slotTokens is set iff player p has a token on the slot, and
+ * bit s of word player * slotWords + s / 64 of playerTokens is set iff the player has a token on slot s.
+ * slotTokens is the authoritative view, playerTokens follows it right after every change.
+ */
+private final AtomicLongArray slotTokens;
+private final AtomicLongArray playerTokens;
+private final int playerWords;
+private final int slotWords;
+/**
+ * The lock of each slot (see update). ReentrantLocks rather than monitors: the dealer holds them during the table
+ * delay, and a virtual thread waiting for a monitor would pin its carrier meanwhile.
+ */
+public final ReentrantLock[] lock; //lockers for each cell in the table
+
+/**
+ * A seqlock over the cards and the tokens, for many writers: a writer registers in writers, changes the table, then
+ * increments version and deregisters. A reader copies the table while no writer is registered, and keeps the copy only
+ * if no writer registered and the version did not change meanwhile (see snapshot).
+ */
+private final AtomicLong version = new AtomicLong();
+private final AtomicInteger writers = new AtomicInteger();
+
+/**
+ * The last snapshot taken, returned again as long as the version does not change.
+ */
+private volatile TableSnapshot published;
+
+/**
+ * The number of lock free attempts to take a snapshot before locking the slots (see snapshot).
+ */
+private static final int SNAPSHOT_ATTEMPTS = 64;
+
+/**
+ * The number of times the table was reset (see newEpoch). Whatever was derived from the table in an earlier epoch
+ * (a player's count of tokens, its queued key presses, a freeze) is stale, and discarded when next looked at.
+ */
+private final AtomicLong epoch = new AtomicLong();
 
 /**
  * Constructor for testing.
  *
  * @param env        - the game environment objects.
- * @param slotToCard - mapping between a slot and the card placed in it (null if none).
- * @param cardToSlot - mapping between a card and the slot it is in (null if none).
+ * @param slotToCard - mapping between a slot and the card placed in it (-1 if none).
+ * @param cardToSlot - mapping between a card and the slot it is in (-1 if none).
  */
-public Table(Env env, Integer[] slotToCard, Integer[] cardToSlot) {
+public Table(Env env, int[] slotToCard, int[] cardToSlot) {
 
     this.env = env;
-    lock = new Object[env.config.tableSize]; // initialaized locks for each cell
+    lock = new ReentrantLock[env.config.tableSize]; // initialaized locks for each cell
     for(int cell = 0; cell < lock.length; cell++){
-        lock[cell] = new Object();
+        lock[cell] = new ReentrantLock();
     }
 
     this.slotToCard = slotToCard;
     this.cardToSlot = cardToSlot;
-
-    playersTokensLocations = new Integer[env.config.players][env.config.tableSize]; // Creates an 2D array in size of the numbers of players * num of slots on table
-    for(int i = 0; i < env.config.players; i++)
-    {
-        for(int j = 0; j < env.config.tableSize; j++)
-        {
-            playersTokensLocations[i][j] = -1; //Initialize all cells to -1, means no token is set on the table yet
+    occupied = new long[(slotToCard.length + Long.SIZE - 1) / Long.SIZE];
+    for (int slot = 0; slot < slotToCard.length; slot++)
+        if (slotToCard[slot] != -1) {
+            occupied[slot / Long.SIZE] |= 1L << slot;
+            cardsCount++;
+            addSetsOf(slotToCard[slot], Arrays.copyOf(slotToCard, slot)); // with the cards before it, so each set once
         }
-    } 
+    slotVersions = new AtomicLongArray(env.config.tableSize);
+
+    playerWords = (env.config.players + Long.SIZE - 1) / Long.SIZE;
+    slotWords = (env.config.tableSize + Long.SIZE - 1) / Long.SIZE;
+    slotTokens = new AtomicLongArray(env.config.tableSize * playerWords);
+    playerTokens = new AtomicLongArray(env.config.players * slotWords);
 }
 
 /**
@@ -67,17 +136,17 @@ public Table(Env env, Integer[] slotToCard, Integer[] cardToSlot) {
  */
 public Table(Env env) {
 
-    this(env, new Integer[env.config.tableSize], new Integer[env.config.deckSize]);
+    this(env, emptyMapping(env.config.tableSize), emptyMapping(env.config.deckSize));
 }
 
 /**
  * This method prints all possible legal sets of cards that are currently on the table.
  */
 public void hints() {
-    List<Integer> deck = Arrays.stream(slotToCard).filter(Objects::nonNull).collect(Collectors.toList());
-    env.util.findSets(deck, Integer.MAX_VALUE).forEach(set -> {
+    TableSnapshot snapshot = snapshot();
+    sets().forEach(set -> {
         StringBuilder sb = new StringBuilder().append("Hint: Set found: ");
-        List<Integer> slots = Arrays.stream(set).mapToObj(card -> cardToSlot[card]).sorted().collect(Collectors.toList());
+        List<Integer> slots = Arrays.stream(set).mapToObj(snapshot::slotOf).sorted().collect(Collectors.toList());
         int[][] features = env.util.cardsToFeatures(set);
         System.out.println(sb.append("slots: ").append(slots).append(" features: ").append(Arrays.deepToString(features)));
     });
@@ -89,14 +158,102 @@ public void hints() {
  * @return - the number of cards on the table.
  */
 public int countCards() {
-    
-    int cards = 0;
-    for (Integer card : slotToCard)
-        if (card != null)
-            ++cards;
-    return cards;
+    return cardsCount;
+}
+
+/**
+ * @return - the empty slots, in ascending order.
+ */
+public int[] freeSlots() {
+    int[] slots = new int[slotToCard.length - cardsCount];
+    int i = 0;
+    for (int word = 0; word < occupied.length; word++)
+        for (long free = ~occupied[word]; free != 0 && i < slots.length; free &= free - 1) {
+            int slot = word * Long.SIZE + Long.numberOfTrailingZeros(free);
+            if (slot < slotToCard.length) slots[i++] = slot;
+        }
+    return Arrays.copyOf(slots, i);
+}
+
+/**
+ * @param size - the size of the mapping.
+ * @return - a mapping from slots to cards or from cards to slots, with nothing mapped (-1 everywhere).
+ */
+static int[] emptyMapping(int size) {
+    int[] mapping = new int[size];
+    Arrays.fill(mapping, -1);
+    return mapping;
+}
+
+
+/**
+ * Count the number of legal sets currently on the table.
+ *
+ * @return - the number of legal sets on the table.
+ */
+public int countSets() {
+    return setsCount;
+}
+
+/**
+ * Returns the legal sets currently on the table.
+ *
+ * @return - a copy of the list of sets, each one contains the card ids of a legal set.
+ */
+public List<int[]> sets() {
+    synchronized (setsOnTable) {
+        return new ArrayList<>(setsOnTable);
+    }
+}
+
+/**
+ * Adds to the sets index every legal set formed by a newly placed card and the other cards on the table.
+ *
+ * @param card - the card that was placed.
+ */
+private void addSetsOf(int card) {
+    addSetsOf(card, slotToCard);
+}
+
+/**
+ * Adds to the sets index every legal set formed by a card and some of the given cards.
+ *
+ * @param card  - the card.
+ * @param cards - the cards to form sets with, by slot (-1 for an empty slot, the card itself is skipped).
+ */
+private void addSetsOf(int card, int[] cards) {
+    int[] others = Arrays.stream(cards).filter(other -> other != -1 && other != card).toArray();
+    int[] candidate = new int[env.config.featureSize];
+    candidate[0] = card;
+    synchronized (setsOnTable) {
+        addSetsOf(others, 0, candidate, 1);
+        setsCount = setsOnTable.size();
+    }
+}
+
+private void addSetsOf(int[] others, int start, int[] candidate, int size) {
+    if (size == candidate.length) {
+        if (env.util.testSet(candidate))
+            setsOnTable.add(candidate.clone());
+        return;
+    }
+    for (int i = start; i <= others.length - (candidate.length - size); i++) {
+        candidate[size] = others[i];
+        addSetsOf(others, i + 1, candidate, size + 1);
+    }
 }
 
+/**
+ * Drops from the sets index every set that contains a removed card.
+ *
+ * @param card - the card that was removed.
+ */
+private void removeSetsOf(int card) {
+    synchronized (setsOnTable) {
+        setsOnTable.removeIf(set -> Arrays.stream(set).anyMatch(c -> c == card));
+        setsCount = setsOnTable.size();
+    }
+}
 
 /**
  * Places a card on the table in a grid slot.
@@ -107,33 +264,250 @@ public int countCards() {
  */
 public void placeCard(int card, int slot) {
     
-    try {
-        Thread.sleep(env.config.tableDelayMillis);
-    } catch (InterruptedException ignored) {}
-
-    cardToSlot[card] = slot;
-    slotToCard[slot] = card;
+    delay();
 
     // TODO implement
+    put(card, slot);
     env.ui.placeCard(card, slot); //Display the card image on the table according to the slot
 }
 
+/**
+ * Places cards on the table in grid slots, with a single table delay and display update for all of them.
+ * @param cards - the card ids to place.
+ * @param slots - the slots in which the cards should be placed, slots[i] for cards[i].
+ *
+ * @post - the cards placed are on the table, in the assigned slots.
+ */
+public void placeCards(int[] cards, int[] slots) {
+    if (cards.length == 0) return;
+    delay();
+
+    for (int i = 0; i < cards.length; i++)
+        put(cards[i], slots[i]);
+    env.ui.placeCards(cards, slots);
+}
+
 /**
  * Removes a card from a grid slot on the table.
  * @param slot - the slot from which to remove the card.
  */
 public void removeCard(int slot) {
+    delay();
+
+    // TODO implement
+    env.ui.removeCard(slot); //removes the card image from the table
+    take(slot);
+}
+
+/**
+ * Removes the cards from grid slots on the table, with a single display update for all of them. Unlike removeCard, it
+ * does not wait for the table delay: it is called while holding the locks of the slots (see update), so the caller
+ * waits for the delay before taking them (see delay), and no one waits for the locks meanwhile.
+ * @param slots - the slots from which to remove the cards.
+ */
+public void removeCards(int[] slots) {
+    if (slots.length == 0) return;
+    env.ui.removeCards(slots);
+    for (int slot : slots)
+        take(slot);
+}
+
+/**
+ * Waits for the table delay (the time it takes to place or remove cards).
+ */
+public void delay() {
     try {
-        Thread.sleep(env.config.tableDelayMillis);
+        env.clock.sleep(env.config.tableDelayMillis);
     } catch (InterruptedException ignored) {}
+}
 
-    // TODO implement
+/**
+ * Puts a card in a slot, replacing the card in it (if any), and updates the sets index.
+ */
+private void put(int card, int slot) {
+    beginWrite();
+    int replaced = slotToCard[slot];
+    if (replaced != -1) { // the slot was not empty
+        cardToSlot[replaced] = -1;
+    } else {
+        occupied[slot / Long.SIZE] |= 1L << slot;
+        cardsCount++;
+    }
+    cardToSlot[card] = slot;
+    slotToCard[slot] = card;
+    slotVersions.incrementAndGet(slot); // publishes the card (read slotVersion before the card)
+    endWrite();
+    if (replaced != -1) removeSetsOf(replaced);
+    addSetsOf(card);
+}
+
+/**
+ * Takes the card out of a slot, and updates the sets index.
+ */
+private void take(int slot) {
     int cardToRemove = slotToCard[slot];
-    env.ui.removeCard(slot); //removes the card image from the table
-    slotToCard[slot] = null; //removes the card from the slot
-    cardToSlot[cardToRemove] = null;
+    beginWrite();
+    slotToCard[slot] = -1; //removes the card from the slot
+    cardToSlot[cardToRemove] = -1;
+    occupied[slot / Long.SIZE] &= ~(1L << slot);
+    cardsCount--;
+    slotVersions.incrementAndGet(slot);
+    endWrite();
+    removeSetsOf(cardToRemove);
+}
+
+/**
+ * Returns the version of a slot. A card read from the slot after reading its version is that version's card, or a
+ * newer one (and then the version seen is already stale).
+ *
+ * @param slot - the slot.
+ * @return - the number of times a card was placed on the slot or removed from it.
+ */
+public long slotVersion(int slot) {
+    return slotVersions.get(slot);
+}
+
+/**
+ * Runs a command that reads and changes a slot (its card and the tokens on it) atomically with respect to the other
+ * commands on the slot.
+ *
+ * @param slot    - the slot.
+ * @param command - the command.
+ */
+public void update(int slot, Runnable command) {
+    lock[slot].lock();
+    try {
+        command.run();
+    } finally {
+        lock[slot].unlock();
+    }
+}
+
+/**
+ * Runs a command that reads and changes several slots atomically with respect to the other commands on these slots.
+ * The slot locks are taken in ascending order, so commands on overlapping slots cannot deadlock.
+ *
+ * @param slots   - the slots.
+ * @param command - the command.
+ */
+public void update(int[] slots, Runnable command) {
+    int[] sorted = slots.clone();
+    Arrays.sort(sorted);
+    int locked = 0;
+    try {
+        for (; locked < sorted.length; locked++)
+            lock[sorted[locked]].lock();
+        command.run();
+    } finally {
+        while (locked > 0)
+            lock[sorted[--locked]].unlock();
+    }
+}
+
+/**
+ * Returns the version of the table. Nothing on the table changed while its version stays the same, so whatever was
+ * computed from the table at some version still holds.
+ *
+ * @return - the number of changes of the cards and the tokens.
+ */
+public long version() {
+    return version.get();
+}
+
+/**
+ * Takes a consistent snapshot of the cards and the tokens on the table, for readers that must not block the players
+ * and the dealer. Takes no lock at first: retries while the table is being changed (see version and writers). If the
+ * tokens keep changing for SNAPSHOT_ATTEMPTS attempts, takes the locks of all the slots to stop the token changes
+ * (which are made under the slot locks, see update), and retries until the dealer's card change in progress (if any)
+ * is over.
+ *
+ * @return - an immutable snapshot of the table.
+ */
+public TableSnapshot snapshot() {
+    TableSnapshot snapshot = trySnapshot(SNAPSHOT_ATTEMPTS);
+    if (snapshot != null) return snapshot;
+
+    TableSnapshot[] locked = new TableSnapshot[1];
+    update(IntStream.range(0, lock.length).toArray(), () -> locked[0] = trySnapshot(Integer.MAX_VALUE));
+    return locked[0];
+}
+
+/**
+ * Tries to take a snapshot without locking (see snapshot).
+ *
+ * @param attempts - the maximal number of attempts.
+ * @return - the snapshot, or null if the table changed during all the attempts.
+ */
+private TableSnapshot trySnapshot(int attempts) {
+    int[] cards = new int[slotToCard.length];
+    long[] tokens = new long[playerTokens.length()];
+    for (int attempt = 0; attempt < attempts; attempt++) {
+        long seen = version.get();
+        TableSnapshot last = published;
+        if (last != null && last.version == seen) return last;
+
+        if (writers.get() == 0) {
+            System.arraycopy(slotToCard, 0, cards, 0, cards.length);
+            for (int word = 0; word < tokens.length; word++)
+                tokens[word] = playerTokens.get(word);
+            VarHandle.acquireFence(); // the copy is read before validating it
+            if (writers.get() == 0 && version.get() == seen) {
+                TableSnapshot snapshot = new TableSnapshot(seen, cards, tokens);
+                published = snapshot;
+                return snapshot;
+            }
+        }
+        Thread.onSpinWait();
+    }
+    return null;
 }
 
+/**
+ * Registers a writer of the cards or the tokens (see version and writers).
+ */
+private void beginWrite() {
+    writers.incrementAndGet();
+}
+
+/**
+ * Deregisters a writer of the cards or the tokens, and publishes its change.
+ */
+private void endWrite() {
+    version.incrementAndGet();
+    writers.decrementAndGet();
+}
+
+/**
+ * @return - the epoch of the table (see newEpoch).
+ */
+public long epoch() {
+    return epoch.get();
+}
+
+/**
+ * Starts a new epoch of the table (before a reshuffle): removes all the tokens at once, with a single display update,
+ * and makes the state the players derived from the table stale. Called while holding the locks of all the slots (see
+ * update), so no token is placed meanwhile.
+ *
+ * @return - the new epoch.
+ */
+public long newEpoch() {
+    beginWrite();
+    for (int word = 0; word < slotTokens.length(); word++)
+        slotTokens.set(word, 0);
+    for (int word = 0; word < playerTokens.length(); word++)
+        playerTokens.set(word, 0);
+    long started = epoch.incrementAndGet();
+    endWrite();
+    env.ui.removeTokens();
+    return started;
+}
+
+/**
+ * Called when the game ends, to release the resources of the table.
+ */
+public void terminate() {}
+
 /**
  * Places a player token on a grid slot.
  * @param player - the player the token belongs to.
@@ -141,12 +515,13 @@ public void removeCard(int slot) {
  */
 public void placeToken(int player, int slot) {
     // TODO implement
-    if(playersTokensLocations[player][slot] == -1) // if there is no token of this player on this slot
-    {
-        playersTokensLocations[player][slot] = 1; // marks the slot with the player's token
+    beginWrite();
+    boolean placed = setBit(slotTokens, slot * playerWords + player / Long.SIZE, player);
+    if (placed) // if there was no token of this player on this slot
+        setBit(playerTokens, player * slotWords + slot / Long.SIZE, slot);
+    endWrite();
+    if (placed)
         env.ui.placeToken(player, slot); //places the token with the player's name on slot he chose
-        
-    } 
 }
 
 
@@ -158,12 +533,97 @@ public void placeToken(int player, int slot) {
  */
 public boolean removeToken(int player, int slot) {
     // TODO implement
-    if(playersTokensLocations[player][slot] != -1) //if there is a token on this slot
-    {
+    beginWrite();
+    boolean removed = clearBit(slotTokens, slot * playerWords + player / Long.SIZE, player);
+    if (removed) //if there was a token on this slot
+        clearBit(playerTokens, player * slotWords + slot / Long.SIZE, slot);
+    endWrite();
+    if (removed)
         env.ui.removeToken(player, slot);
-        playersTokensLocations[player][slot] = -1; //removes the token from the array
-        return true;
-    }
-    return false;
+    return removed;
+}
+
+/**
+ * Removes all the tokens from a grid slot.
+ * @param slot - the slot from which to remove the tokens.
+ * @return     - the ids of the players whose tokens were removed.
+ */
+public int[] removeTokens(int slot) {
+    int[] players = new int[0];
+    beginWrite();
+    for (int word = 0; word < playerWords; word++) {
+        long removed = slotTokens.getAndSet(slot * playerWords + word, 0);
+        if (removed == 0) continue;
+        int count = players.length;
+        players = Arrays.copyOf(players, count + Long.bitCount(removed));
+        for (; removed != 0; removed &= removed - 1) {
+            int player = word * Long.SIZE + Long.numberOfTrailingZeros(removed);
+            clearBit(playerTokens, player * slotWords + slot / Long.SIZE, slot);
+            players[count++] = player;
+        }
     }
+    endWrite();
+    if (players.length > 0) env.ui.removeTokens(slot);
+    return players;
+}
+
+/**
+ * @param player - a player id.
+ * @param slot   - a slot.
+ * @return       - true iff the player has a token on the slot.
+ */
+public boolean hasToken(int player, int slot) {
+    return (slotTokens.get(slot * playerWords + player / Long.SIZE) & 1L << player) != 0;
+}
+
+/**
+ * @param player - a player id.
+ * @return       - the slots the player has tokens on, in ascending order.
+ */
+public int[] tokenSlots(int player) {
+    int count = countTokens(player);
+    int[] slots = new int[count];
+    int i = 0;
+    for (int word = 0; word < slotWords && i < count; word++)
+        for (long bits = playerTokens.get(player * slotWords + word); bits != 0 && i < count; bits &= bits - 1)
+            slots[i++] = word * Long.SIZE + Long.numberOfTrailingZeros(bits);
+    return Arrays.copyOf(slots, i);
+}
+
+/**
+ * @param player - a player id.
+ * @return       - the number of tokens the player has on the table.
+ */
+public int countTokens(int player) {
+    int count = 0;
+    for (int word = 0; word < slotWords; word++)
+        count += Long.bitCount(playerTokens.get(player * slotWords + word));
+    return count;
+}
+
+/**
+ * Sets a bit of a word of a bitmask by CAS.
+ * @return - true iff the bit was clear (i.e. this call set it).
+ */
+private static boolean setBit(AtomicLongArray words, int word, int bit) {
+    long mask = 1L << bit, old;
+    do {
+        old = words.get(word);
+        if ((old & mask) != 0) return false;
+    } while (!words.compareAndSet(word, old, old | mask));
+    return true;
+}
+
+/**
+ * Clears a bit of a word of a bitmask by CAS.
+ * @return - true iff the bit was set (i.e. this call cleared it).
+ */
+private static boolean clearBit(AtomicLongArray words, int word, int bit) {
+    long mask = 1L << bit, old;
+    do {
+        old = words.get(word);
+        if ((old & mask) == 0) return false;
+    } while (!words.compareAndSet(word, old, old & ~mask));
+    return true;
+}
 }
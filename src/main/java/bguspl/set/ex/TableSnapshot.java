@@ -0,0 +1,75 @@
+package bguspl.set.ex;
+
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * An immutable snapshot of the cards and the tokens on the table (see Table::snapshot).
+ */
+public final class TableSnapshot {
+
+    /**
+     * The version of the table when the snapshot was taken (see Table::version).
+     */
+    public final long version;
+
+    /**
+     * The card in each slot (-1 if none).
+     */
+    private final int[] cards;
+
+    /**
+     * The tokens of each player: bit s of word player * slotWords + s / 64 is set iff the player has a token on slot s.
+     */
+    private final long[] tokens;
+    private final int slotWords;
+
+    TableSnapshot(long version, int[] cards, long[] tokens) {
+        this.version = version;
+        this.cards = cards;
+        this.tokens = tokens;
+        slotWords = (cards.length + Long.SIZE - 1) / Long.SIZE;
+    }
+
+    /**
+     * @param slot - a slot.
+     * @return - the card in the slot, or -1 if none.
+     */
+    public int cardAt(int slot) {
+        return cards[slot];
+    }
+
+    /**
+     * @param card - a card id.
+     * @return - the slot the card is in, or -1 if it is not on the table.
+     */
+    public int slotOf(int card) {
+        for (int slot = 0; slot < cards.length; slot++)
+            if (cards[slot] == card) return slot;
+        return -1;
+    }
+
+    /**
+     * @return - the number of cards on the table.
+     */
+    public int countCards() {
+        return (int) Arrays.stream(cards).filter(card -> card != -1).count();
+    }
+
+    /**
+     * @param player - a player id.
+     * @param slot   - a slot.
+     * @return - true iff the player has a token on the slot.
+     */
+    public boolean hasToken(int player, int slot) {
+        return (tokens[player * slotWords + slot / Long.SIZE] & 1L << slot) != 0;
+    }
+
+    /**
+     * @param player - a player id.
+     * @return - the slots the player has tokens on, in ascending order.
+     */
+    public int[] tokenSlots(int player) {
+        return IntStream.range(0, cards.length).filter(slot -> hasToken(player, slot)).toArray();
+    }
+}
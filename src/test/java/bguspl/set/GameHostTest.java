@@ -0,0 +1,96 @@
+package bguspl.set;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GameHostTest {
+
+    private GameHost host;
+    private Config config;
+
+    @BeforeEach
+    void setUp() {
+        Properties properties = new Properties();
+        properties.put("Simulation", "True");
+        properties.put("HumanPlayers", "0");
+        properties.put("ComputerPlayers", "2");
+        properties.put("FeatureSize", "3");
+        properties.put("FeatureCount", "2");
+        properties.put("Rows", "1");
+        properties.put("Columns", "3");
+        properties.put("TurnTimeoutSeconds", "5");
+        properties.put("TurnTimeoutWarningSeconds", "1");
+        properties.put("PointFreezeSeconds", "1");
+        properties.put("PenaltyFreezeSeconds", "3");
+        properties.put("TableDelaySeconds", "0.1");
+        Logger logger = new MockLogger();
+        config = new Config(logger, properties);
+        host = new GameHost(logger, 2);
+    }
+
+    @AfterEach
+    void tearDown() {
+        host.terminate();
+    }
+
+    @Test
+    void drain_RunsAllCreatedGamesToTheEnd() throws InterruptedException {
+        for (int i = 0; i < 4; i++)
+            host.create(config);
+
+        host.drain();
+        assertThrows(IllegalStateException.class, () -> host.create(config));
+        assertTrue(host.awaitDrained(60, TimeUnit.SECONDS));
+
+        List<GameHost.Game> reaped = host.reap();
+        assertEquals(4, reaped.size());
+        assertEquals(0, host.size());
+        for (GameHost.Game game : reaped)
+            assertEquals(GameHost.State.FINISHED, game.state());
+    }
+
+    @Test
+    void reap_KeepsTheGamesThatDidNotFinish() {
+        config = new Config(new MockLogger(), withoutTimeout()); // nobody plays, so the game does not end
+        GameHost.Game game = host.create(config);
+
+        assertTrue(host.reap().isEmpty());
+        assertEquals(1, host.size());
+        assertNotEquals(GameHost.State.FINISHED, game.state());
+    }
+
+    @Test
+    void terminate_EndsRunningAndQueuedGames() throws InterruptedException {
+        config = new Config(new MockLogger(), withoutTimeout());
+        for (int i = 0; i < 4; i++)
+            host.create(config);
+
+        host.terminate();
+        assertTrue(host.awaitDrained(60, TimeUnit.SECONDS));
+        assertEquals(4, host.reap().size());
+    }
+
+    private static Properties withoutTimeout() {
+        Properties properties = new Properties();
+        properties.put("HumanPlayers", "2");
+        properties.put("ComputerPlayers", "0");
+        properties.put("Simulation", "True");
+        properties.put("PlayerKeys1", "81,87,69,82");
+        properties.put("PlayerKeys2", "85,73,79,80");
+        return properties;
+    }
+
+    static class MockLogger extends Logger {
+        protected MockLogger() {
+            super("GameHostTest", null);
+        }
+    }
+}
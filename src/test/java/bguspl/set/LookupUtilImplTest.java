@@ -0,0 +1,214 @@
+package bguspl.set;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+import java.util.Random;
+import java.util.Set;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LookupUtilImplTest {
+
+    Config config;
+    UtilImpl reference;
+    LookupUtilImpl util;
+
+    @BeforeEach
+    void setUp() {
+
+        Properties properties = new Properties();
+        properties.put("FeatureSize", "3");
+        properties.put("FeatureCount", "4");
+        config = new Config(new MockLogger(), properties);
+        reference = new UtilImpl(config);
+        util = new LookupUtilImpl(config);
+    }
+
+    @Test
+    void testSet_LegalSet() {
+
+        // 0000, 1111, 2222 in base 3
+        assertTrue(util.testSet(new int[]{0, 40, 80}));
+    }
+
+    @Test
+    void testSet_IllegalSet() {
+
+        // 0000, 0001, 0011 in base 3
+        assertFalse(util.testSet(new int[]{0, 1, 4}));
+    }
+
+    @Test
+    void testSet_MatchesDefinitionOnAllTriples() {
+
+        for (int a = 0; a < config.deckSize; ++a)
+            for (int b = a + 1; b < config.deckSize; ++b)
+                for (int c = b + 1; c < config.deckSize; ++c) {
+                    int[] cards = {a, b, c};
+                    assertEquals(UtilImplTest.isSet(reference, cards), util.testSet(cards));
+                }
+    }
+
+    @Test
+    void testSets_MatchesTestSet() {
+
+        Random random = new Random(0);
+        int[][] claims = new int[1000][];
+        for (int i = 0; i < claims.length; ++i)
+            claims[i] = random.ints(0, config.deckSize).distinct().limit(config.featureSize).toArray();
+        claims[0] = new int[]{0, 40, 80};
+        boolean[] legal = new boolean[claims.length];
+
+        util.testSets(claims, legal);
+        for (int i = 0; i < claims.length; ++i)
+            assertEquals(util.testSet(claims[i]), legal[i]);
+        assertTrue(legal[0]);
+    }
+
+    @Test
+    void findSets_FullDeck() {
+
+        List<Integer> deck = IntStream.range(0, config.deckSize).boxed().collect(Collectors.toList());
+        assertEquals(1080, util.findSets(deck, Integer.MAX_VALUE).size());
+    }
+
+    @Test
+    void catalog_IsSharedAndComplete() {
+
+        assertTrue(util.catalog == new LookupUtilImpl(config).catalog);
+        assertEquals(1080, util.catalog.size());
+    }
+
+    @Test
+    void findSets_RepeatedCardsHitCache() {
+
+        List<Integer> table = Arrays.asList(0, 40, 80, 1, 2, 3);
+        long hits = util.cache().hits();
+        List<int[]> first = util.findSets(table, Integer.MAX_VALUE);
+        List<int[]> second = util.findSets(Arrays.asList(3, 2, 1, 80, 40, 0), Integer.MAX_VALUE);
+
+        assertEquals(hits + 1, util.cache().hits());
+        assertEquals(asStrings(first), asStrings(second));
+        assertEquals(1, util.findSets(table, 1).size());
+    }
+
+    @Test
+    void findSets_RespectsCount() {
+
+        List<Integer> deck = IntStream.range(0, config.deckSize).boxed().collect(Collectors.toList());
+        assertEquals(1, util.findSets(deck, 1).size());
+    }
+
+    @Test
+    void findSets_MatchesDefinitionOnRandomTables() {
+
+        Random random = new Random(0);
+        List<Integer> deck = IntStream.range(0, config.deckSize).boxed().collect(Collectors.toList());
+        for (int round = 0; round < 100; ++round) {
+            Collections.shuffle(deck, random);
+            List<Integer> table = new ArrayList<>(deck.subList(0, 12));
+            assertEquals(asStrings(UtilImplTest.bruteForceSets(reference, config.featureSize, table)),
+                    asStrings(util.findSets(table, Integer.MAX_VALUE)));
+        }
+    }
+
+    @Test
+    void findSets_ParallelSearch() {
+
+        Properties properties = new Properties();
+        properties.put("FeatureSize", "3");
+        properties.put("FeatureCount", "5");
+        properties.put("ParallelSearch", "True");
+        Config config = new Config(new MockLogger(), properties);
+        LookupUtilImpl util = new LookupUtilImpl(config);
+        List<Integer> deck = IntStream.range(0, config.deckSize).boxed().collect(Collectors.toList());
+
+        List<int[]> sets = util.findSets(deck, Integer.MAX_VALUE);
+        assertEquals(config.deckSize * (config.deckSize - 1) / 6, sets.size());
+        assertEquals(sets.size(), asStrings(sets).size());
+        sets.forEach(set -> assertTrue(util.testSet(set)));
+        assertEquals(5, util.findSets(deck, 5).size());
+    }
+
+    @Test
+    void streamSets_ExhaustedStreamsAreCached() {
+
+        int[] table = {0, 40, 80, 1, 2, 3};
+        long hits = util.cache().hits();
+        assertEquals(1, util.streamSets(table).limit(1).count()); // not exhausted, so not cached
+        List<int[]> first = util.streamSets(table).collect(Collectors.toList());
+        assertEquals(hits, util.cache().hits());
+
+        List<int[]> second = util.streamSets(new int[]{3, 2, 1, 80, 40, 0}).collect(Collectors.toList());
+        assertEquals(hits + 1, util.cache().hits());
+        assertEquals(asStrings(first), asStrings(second));
+    }
+
+    @Test
+    void streamSets_ParallelSearch() {
+
+        Properties properties = new Properties();
+        properties.put("FeatureSize", "3");
+        properties.put("FeatureCount", "5");
+        properties.put("ParallelSearch", "True");
+        Config config = new Config(new MockLogger(), properties);
+        LookupUtilImpl util = new LookupUtilImpl(config);
+
+        int[] cards = IntStream.range(0, config.deckSize).toArray();
+        assertTrue(util.streamSets(cards).isParallel());
+        assertFalse(util.streamSets(Arrays.copyOf(cards, 12)).isParallel());
+        assertFalse(this.util.streamSets(IntStream.range(0, this.config.deckSize).toArray()).isParallel()); // not configured
+        assertEquals(config.deckSize * (config.deckSize - 1) / 6, util.streamSets(cards).count());
+    }
+
+    @Test
+    void findSets_OtherFeatureSizeMatchesDefinition() {
+
+        Properties properties = new Properties();
+        properties.put("FeatureSize", "4");
+        properties.put("FeatureCount", "3");
+        Config config = new Config(new MockLogger(), properties);
+        UtilImpl reference = new UtilImpl(config);
+        LookupUtilImpl util = new LookupUtilImpl(config);
+
+        Random random = new Random(0);
+        List<Integer> deck = IntStream.range(0, config.deckSize).boxed().collect(Collectors.toList());
+        for (int round = 0; round < 20; ++round) {
+            Collections.shuffle(deck, random);
+            List<Integer> table = new ArrayList<>(deck.subList(0, 20));
+            assertEquals(asStrings(UtilImplTest.bruteForceSets(reference, config.featureSize, table)),
+                    asStrings(util.findSets(table, Integer.MAX_VALUE)));
+        }
+    }
+
+    @Test
+    void streamSets_MatchesFindSets() {
+
+        int[] cards = IntStream.range(0, config.deckSize).toArray();
+        List<Integer> deck = IntStream.range(0, config.deckSize).boxed().collect(Collectors.toList());
+        assertEquals(asStrings(util.findSets(deck, Integer.MAX_VALUE)),
+                asStrings(util.streamSets(cards).parallel().collect(Collectors.toList())));
+        assertEquals(10, util.streamSets(cards).limit(10).count());
+    }
+
+    private static Set<String> asStrings(List<int[]> sets) {
+        return sets.stream().map(set -> Arrays.toString(Arrays.stream(set).sorted().toArray())).collect(Collectors.toSet());
+    }
+
+    static class MockLogger extends Logger {
+        protected MockLogger() {
+            super("", null);
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package bguspl.set;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Arrays;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+/**
+ * Compares running a crowded game on platform threads and on virtual threads (see Config::virtualThreads).
+ * Not a unit test: run it with the test classpath, e.g.
+ * java -cp target/classes:target/test-classes bguspl.set.ThreadModeBenchmark [players] [seconds]
+ * For each mode a game of computer players runs for the given time, then the sets collected meanwhile, the peak number
+ * of platform threads and the time it took to terminate the game are printed.
+ */
+public class ThreadModeBenchmark {
+
+    public static void main(String[] args) throws InterruptedException {
+        int players = args.length > 0 ? Integer.parseInt(args[0]) : 10000;
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+
+        for (boolean virtual : new boolean[]{false, true})
+            run(players, seconds, virtual);
+    }
+
+    private static void run(int players, int seconds, boolean virtual) throws InterruptedException {
+        Logger logger = Logger.getAnonymousLogger();
+        logger.setUseParentHandlers(false);
+
+        Properties properties = new Properties();
+        properties.put("LogLevel", "OFF");
+        properties.put("HumanPlayers", "0");
+        properties.put("ComputerPlayers", Integer.toString(players));
+        properties.put("TurnTimeoutSeconds", "60");
+        properties.put("PointFreezeSeconds", "1");
+        properties.put("PenaltyFreezeSeconds", "3");
+        properties.put("TableDelaySeconds", "0");
+        Config config = new Config(logger, properties);
+
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        threads.resetPeakThreadCount();
+        GameHost host = new GameHost(logger, 1, virtual);
+
+        GameHost.Game game = host.create(config);
+        while (game.state() == GameHost.State.QUEUED)
+            Thread.sleep(1);
+        Thread.sleep(seconds * 1000L);
+        long stop = System.nanoTime();
+        host.terminate();
+        host.awaitDrained(1, TimeUnit.HOURS);
+        long end = System.nanoTime();
+
+        System.out.printf("%-8s threads, %d players, %d s: sets collected %d, peak platform threads %d, terminated in %d ms%n",
+                virtual ? "virtual" : "platform", players, seconds, Arrays.stream(game.scores()).sum(),
+                threads.getPeakThreadCount(), (end - stop) / 1_000_000);
+    }
+}
@@ -0,0 +1,112 @@
+package bguspl.set;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Properties;
+import java.util.Random;
+import java.util.Set;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class UtilImplTest {
+
+    private static Config config(int featureSize, int featureCount) {
+        Properties properties = new Properties();
+        properties.put("FeatureSize", Integer.toString(featureSize));
+        properties.put("FeatureCount", Integer.toString(featureCount));
+        return new Config(new MockLogger(), properties);
+    }
+
+    @Test
+    void testSet_FeatureSize3MatchesDefinition() {
+
+        Config config = config(3, 4);
+        UtilImpl util = new UtilImpl(config);
+        for (int a = 0; a < config.deckSize; ++a)
+            for (int b = a + 1; b < config.deckSize; ++b)
+                for (int c = b + 1; c < config.deckSize; ++c) {
+                    int[] cards = {a, b, c};
+                    assertEquals(isSet(util, cards), util.testSet(cards));
+                }
+    }
+
+    @Test
+    void findSets_FeatureSize5MatchesDefinition() {
+
+        Config config = config(5, 3);
+        UtilImpl util = new UtilImpl(config);
+        Random random = new Random(0);
+        List<Integer> deck = IntStream.range(0, config.deckSize).boxed().collect(Collectors.toList());
+        for (int round = 0; round < 10; ++round) {
+            Collections.shuffle(deck, random);
+            List<Integer> table = new ArrayList<>(deck.subList(0, 30));
+            assertEquals(asStrings(bruteForceSets(util, config.featureSize, table)),
+                    asStrings(util.findSets(table, Integer.MAX_VALUE)));
+        }
+    }
+
+    @Test
+    void findSets_FullDeckCounts() {
+
+        // ordered k-tuples: per feature k same values or k! permutations, minus the tuples of a repeated card
+        assertEquals((9 * 9 * 9 * 9 - 81) / 6, countAllSets(config(3, 4)));
+        assertEquals((125 * 125 - 25) / 120, countAllSets(config(5, 2)));
+    }
+
+    private static int countAllSets(Config config) {
+        List<Integer> deck = IntStream.range(0, config.deckSize).boxed().collect(Collectors.toList());
+        return new UtilImpl(config).findSets(deck, Integer.MAX_VALUE).size();
+    }
+
+    /**
+     * Checks the definition of a set directly: each feature is either the same on all cards or different on all cards.
+     */
+    static boolean isSet(Util util, int[] cards) {
+        int[][] features = util.cardsToFeatures(cards);
+        for (int i = 0; i < features[0].length; ++i) {
+            final int feature = i;
+            long distinct = Arrays.stream(features).mapToInt(f -> f[feature]).distinct().count();
+            if (distinct != 1 && distinct != cards.length) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Finds all the sets in the given cards by testing the definition on every combination of featureSize cards.
+     */
+    static List<int[]> bruteForceSets(Util util, int featureSize, List<Integer> cards) {
+        List<int[]> sets = new LinkedList<>();
+        int[] sorted = cards.stream().mapToInt(Integer::intValue).sorted().toArray();
+        collect(util, sorted, 0, new int[featureSize], 0, sets);
+        return sets;
+    }
+
+    private static void collect(Util util, int[] cards, int start, int[] candidate, int size, List<int[]> sets) {
+        if (size == candidate.length) {
+            if (isSet(util, candidate)) sets.add(candidate.clone());
+            return;
+        }
+        for (int i = start; i < cards.length; ++i) {
+            candidate[size] = cards[i];
+            collect(util, cards, i + 1, candidate, size + 1, sets);
+        }
+    }
+
+    static Set<String> asStrings(List<int[]> sets) {
+        return sets.stream().map(set -> Arrays.toString(Arrays.stream(set).sorted().toArray())).collect(Collectors.toSet());
+    }
+
+    static class MockLogger extends Logger {
+        protected MockLogger() {
+            super("", null);
+        }
+    }
+}
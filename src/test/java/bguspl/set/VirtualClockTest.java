@@ -0,0 +1,100 @@
+package bguspl.set;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class VirtualClockTest {
+
+    private VirtualClock clock;
+
+    @BeforeEach
+    void setUp() {
+        clock = new VirtualClock();
+    }
+
+    @Test
+    void sleep_TakesNoRealTime() throws InterruptedException {
+
+        long start = System.nanoTime();
+        clock.sleep(60_000);
+
+        assertEquals(60_000, clock.currentTimeMillis());
+        assertTrue(System.nanoTime() - start < 5_000_000_000L);
+    }
+
+    @Test
+    void signal_ThreadsWakeAtTheirDeadlines() throws InterruptedException {
+
+        AtomicLong firstWoke = new AtomicLong(-1);
+        Thread first = new Thread(() -> {
+            try {
+                assertFalse(clock.newSignal().await(1000));
+                firstWoke.set(clock.currentTimeMillis());
+            } catch (InterruptedException ignored) {}
+        });
+        first.start();
+        assertFalse(clock.newSignal().await(3000));
+        first.join();
+
+        assertTrue(firstWoke.get() >= 1000 && firstWoke.get() <= 3000); // no participant, so the time may move on
+        assertEquals(3000, clock.currentTimeMillis());
+    }
+
+    @Test
+    void participant_TimeStandsStillWhileItRuns() throws InterruptedException {
+
+        AtomicBoolean release = new AtomicBoolean();
+        Thread running = new Thread(clock.participant(() -> {
+            while (!release.get())
+                Thread.onSpinWait();
+        }));
+        running.start();
+        Thread sleeping = new Thread(() -> {
+            try {
+                clock.sleep(1000);
+            } catch (InterruptedException ignored) {}
+        });
+        sleeping.start();
+
+        Thread.sleep(100);
+        assertEquals(0, clock.currentTimeMillis());
+        release.set(true);
+        sleeping.join();
+        running.join();
+        assertEquals(1000, clock.currentTimeMillis());
+    }
+
+    @Test
+    void signal_RaisedParticipantRunsBeforeTheTimeMoves() throws InterruptedException {
+
+        Clock.Signal signal = clock.newSignal();
+        AtomicLong woke = new AtomicLong(-1);
+        Thread waiting = new Thread(clock.participant(() -> {
+            try {
+                assertTrue(signal.await(Long.MAX_VALUE));
+                woke.set(clock.currentTimeMillis());
+                clock.sleep(500);
+            } catch (InterruptedException ignored) {}
+        }));
+        Thread raising = new Thread(clock.participant(() -> {
+            try {
+                clock.sleep(1000);
+                signal.raise();
+            } catch (InterruptedException ignored) {}
+        }));
+        waiting.start();
+        raising.start();
+        waiting.join();
+        raising.join();
+
+        assertEquals(1000, woke.get());
+        assertEquals(1500, clock.currentTimeMillis());
+    }
+}
@@ -0,0 +1,78 @@
+package bguspl.set.ex;
+
+import bguspl.set.Config;
+import bguspl.set.Env;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Properties;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class ActorTableTest {
+
+    private ActorTable table;
+
+    @BeforeEach
+    void setUp() {
+        Properties properties = new Properties();
+        properties.put("Rows", "2");
+        properties.put("Columns", "2");
+        properties.put("TableDelaySeconds", "0");
+        properties.put("PlayerKeys1", "81,87,69,82");
+        properties.put("PlayerKeys2", "85,73,79,80");
+        TableTest.MockLogger logger = new TableTest.MockLogger();
+        Config config = new Config(logger, properties);
+        Env env = new Env(logger, config, new TableTest.MockUserInterface(), new TableTest.MockUtil());
+        table = new ActorTable(env);
+    }
+
+    @AfterEach
+    void tearDown() {
+        table.terminate();
+    }
+
+    @Test
+    void placeCard_PublishesASnapshot() {
+        TableSnapshot before = table.snapshot();
+        table.placeCard(8, 2);
+
+        TableSnapshot after = table.snapshot();
+        assertNotSame(before, after);
+        assertEquals(8, after.cardAt(2));
+        assertEquals(2, after.slotOf(8));
+        assertEquals(1, after.countCards());
+        assertEquals(before.version + 1, after.version);
+        assertSame(after, table.snapshot());
+    }
+
+    @Test
+    void update_CommandsOfManyThreadsAreNotInterleaved() throws InterruptedException {
+        int[] counter = new int[1];
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < 1000; i++)
+                    table.update(0, () -> counter[0]++);
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads)
+            thread.join();
+
+        table.update(0, () -> {}); // the counter is read after a command, like the players read their tokens
+        assertEquals(4000, counter[0]);
+    }
+
+    @Test
+    void terminate_LaterCommandsStillRun() throws InterruptedException {
+        table.terminate();
+        Thread.sleep(50);
+
+        table.placeCard(3, 1);
+        assertEquals(1, table.snapshot().slotOf(3));
+    }
+}
@@ -0,0 +1,109 @@
+package bguspl.set.ex;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ClaimMailboxTest {
+
+    ClaimMailbox mailbox;
+
+    @BeforeEach
+    void setUp() {
+        mailbox = new ClaimMailbox(4);
+    }
+
+    @Test
+    void poll_InSubmissionOrder() {
+
+        mailbox.submit(2);
+        mailbox.submit(0);
+        mailbox.submit(3);
+
+        assertEquals(2, mailbox.poll());
+        assertEquals(0, mailbox.poll());
+        assertEquals(3, mailbox.poll());
+        assertEquals(-1, mailbox.poll());
+        assertTrue(mailbox.isEmpty());
+    }
+
+    @Test
+    void invalidate_SkipsClaim() {
+
+        mailbox.submit(1);
+        mailbox.submit(2);
+
+        assertTrue(mailbox.invalidate(1));
+        assertFalse(mailbox.invalidate(1));
+        assertFalse(mailbox.isEmpty());
+        assertEquals(2, mailbox.poll());
+        assertEquals(-1, mailbox.poll());
+        assertTrue(mailbox.isEmpty());
+    }
+
+    @Test
+    void submit_AfterInvalidateIsPolledOnce() {
+
+        mailbox.submit(1);
+        mailbox.invalidate(1);
+        mailbox.submit(1);
+
+        assertEquals(1, mailbox.poll());
+        assertEquals(-1, mailbox.poll());
+    }
+
+    @Test
+    void clear_InvalidatesThePendingClaimsOnly() {
+
+        mailbox.submit(0);
+        mailbox.submit(1);
+        mailbox.clear();
+        assertFalse(mailbox.invalidate(0));
+        mailbox.submit(1);
+        mailbox.submit(2);
+
+        assertEquals(1, mailbox.poll());
+        assertEquals(2, mailbox.poll());
+        assertEquals(-1, mailbox.poll());
+        assertTrue(mailbox.isEmpty());
+    }
+
+    @Test
+    void submit_ConcurrentPlayers() throws InterruptedException {
+
+        int rounds = 2000;
+        Thread[] threads = new Thread[4];
+        for (int i = 0; i < threads.length; i++) {
+            int player = i;
+            threads[i] = new Thread(() -> {
+                for (int round = 0; round < rounds; round++) {
+                    mailbox.submit(player);
+                    mailbox.invalidate(player);
+                }
+            });
+            threads[i].start();
+        }
+        Set<Integer> polled = new HashSet<>();
+        while (anyAlive(threads))
+            polled.add(mailbox.poll());
+        for (Thread thread : threads)
+            thread.join();
+        while (mailbox.poll() != -1) {}
+
+        assertTrue(mailbox.isEmpty());
+        polled.remove(-1);
+        assertTrue(polled.stream().allMatch(player -> player >= 0 && player < threads.length));
+    }
+
+    private static boolean anyAlive(Thread[] threads) {
+        for (Thread thread : threads)
+            if (thread.isAlive()) return true;
+        return false;
+    }
+}
@@ -0,0 +1,86 @@
+package bguspl.set.ex;
+
+import bguspl.set.Config;
+import bguspl.set.Env;
+import bguspl.set.UtilImpl;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Properties;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ClaimTest {
+
+    private Env env;
+    private Table table;
+
+    @BeforeEach
+    void setUp() {
+        Properties properties = new Properties();
+        properties.put("Rows", "2");
+        properties.put("Columns", "2");
+        properties.put("TableDelaySeconds", "0");
+        properties.put("PlayerKeys1", "81,87,69,82");
+        properties.put("PlayerKeys2", "85,73,79,80");
+        TableTest.MockLogger logger = new TableTest.MockLogger();
+        Config config = new Config(logger, properties);
+        env = new Env(logger, config, new TableTest.MockUserInterface(), new UtilImpl(config));
+        table = new Table(env);
+
+        // 0000, 1111, 2222 and 0001 in base 3
+        table.placeCard(0, 0);
+        table.placeCard(40, 1);
+        table.placeCard(80, 2);
+        table.placeCard(1, 3);
+    }
+
+    @Test
+    void validate_LegalSet() {
+        table.placeToken(0, 0);
+        table.placeToken(0, 1);
+        table.placeToken(0, 2);
+
+        Claim claim = Claim.validate(env, table, 0);
+        assertTrue(claim.legal);
+        assertArrayEquals(new int[]{0, 40, 80}, claim.cards);
+        assertTrue(claim.isCurrent(table));
+    }
+
+    @Test
+    void validate_IllegalSet() {
+        table.placeToken(1, 1);
+        table.placeToken(1, 2);
+        table.placeToken(1, 3);
+
+        Claim claim = Claim.validate(env, table, 1);
+        assertFalse(claim.legal);
+        assertTrue(claim.isCurrent(table));
+    }
+
+    @Test
+    void isCurrent_FalseAfterAClaimedCardIsReplaced() {
+        table.placeToken(0, 0);
+        table.placeToken(0, 1);
+        table.placeToken(0, 2);
+        Claim claim = Claim.validate(env, table, 0);
+
+        table.removeCard(3); // not claimed
+        assertTrue(claim.isCurrent(table));
+        table.removeCard(2);
+        table.placeCard(80, 2);
+        assertFalse(claim.isCurrent(table));
+    }
+
+    @Test
+    void isCurrent_FalseForAnIncompleteClaim() {
+        table.placeToken(0, 0);
+        table.placeToken(0, 1);
+
+        Claim claim = Claim.validate(env, table, 0);
+        assertFalse(claim.complete);
+        assertFalse(claim.isCurrent(table));
+    }
+}
@@ -0,0 +1,143 @@
+package bguspl.set.ex;
+
+import bguspl.set.Config;
+import bguspl.set.Env;
+import bguspl.set.UtilImpl;
+import bguspl.set.VirtualClock;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DealerTest {
+
+    private Env env;
+    private VirtualClock clock;
+    private Dealer dealer;
+    private Player player;
+
+    @BeforeEach
+    void setUp() {
+        Properties properties = new Properties();
+        properties.put("Rows", "2");
+        properties.put("Columns", "2");
+        properties.put("FeatureSize", "3");
+        properties.put("FeatureCount", "4");
+        properties.put("TableDelaySeconds", "0");
+        properties.put("PlayerKeys1", "81,87,69,82");
+        properties.put("PlayerKeys2", "85,73,79,80");
+        TableTest.MockLogger logger = new TableTest.MockLogger();
+        Config config = new Config(logger, properties);
+        env = new Env(logger, config, new TableTest.MockUserInterface(), new UtilImpl(config));
+    }
+
+    @Test
+    void placeCardsOnTable_DealsASetInRandomSlots() {
+
+        Set<String> setSlots = new HashSet<>();
+        for (int round = 0; round < 50; round++) {
+            Table table = new Table(env);
+            new Dealer(env, table, new Player[0]).placeCardsOnTable();
+
+            assertEquals(env.config.tableSize, table.countCards());
+            List<int[]> sets = table.sets();
+            assertTrue(sets.size() > 0);
+            int[] slots = Arrays.stream(sets.get(0)).map(card -> table.cardToSlot[card]).sorted().toArray();
+            setSlots.add(Arrays.toString(slots));
+        }
+        assertTrue(setSlots.size() > 1);
+    }
+
+    /**
+     * Starts the countdown (60 seconds, with a 5.5 seconds warning) of a dealer with one player, at time 0 of a virtual
+     * clock. The test thread moves the clock by sleeping on it.
+     */
+    private void startCountdown() {
+        Properties properties = new Properties();
+        properties.put("Rows", "2");
+        properties.put("Columns", "2");
+        properties.put("TurnTimeoutSeconds", "60");
+        properties.put("TurnTimeoutWarningSeconds", "5.5");
+        properties.put("PlayerKeys1", "81,87,69,82");
+        properties.put("PlayerKeys2", "85,73,79,80");
+        TableTest.MockLogger logger = new TableTest.MockLogger();
+        Config config = new Config(logger, properties);
+        clock = new VirtualClock();
+        env = new Env(logger, config, new TableTest.MockUserInterface(), new UtilImpl(config), clock);
+        Player[] players = new Player[1];
+        dealer = new Dealer(env, new Table(env), players);
+        player = players[0] = new Player(env, dealer, new Table(env), 0, true);
+        dealer.updateTimerDisplay(true);
+    }
+
+    private void sleepUntil(long time) throws InterruptedException {
+        clock.sleep(time - clock.currentTimeMillis());
+        assertEquals(time, clock.currentTimeMillis());
+    }
+
+    @Test
+    void nextWakeTime_SecondTicks() throws InterruptedException {
+        startCountdown();
+        assertEquals(1000, dealer.nextWakeTime());
+
+        sleepUntil(1500);
+        assertEquals(2000, dealer.nextWakeTime());
+
+        sleepUntil(2000);
+        assertEquals(3000, dealer.nextWakeTime());
+    }
+
+    @Test
+    void nextWakeTime_WarningBoundary() throws InterruptedException {
+        startCountdown();
+
+        sleepUntil(54000);
+        assertEquals(54500, dealer.nextWakeTime());
+
+        sleepUntil(54400);
+        assertEquals(54500, dealer.nextWakeTime());
+    }
+
+    @Test
+    void nextWakeTime_WarningTicks() throws InterruptedException {
+        startCountdown();
+
+        sleepUntil(54500);
+        assertEquals(54510, dealer.nextWakeTime());
+
+        sleepUntil(54505);
+        assertEquals(54510, dealer.nextWakeTime());
+
+        sleepUntil(59995);
+        assertEquals(60000, dealer.nextWakeTime());
+
+        sleepUntil(60000);
+        assertEquals(60000, dealer.nextWakeTime());
+    }
+
+    @Test
+    void nextWakeTime_FreezeTicks() throws InterruptedException {
+        startCountdown();
+
+        sleepUntil(1200);
+        player.isFrozen = true;
+        player.unfreezeTime = 3700;
+        assertEquals(1700, dealer.nextWakeTime());
+
+        sleepUntil(1700);
+        assertEquals(2000, dealer.nextWakeTime()); // the countdown ticks before the freeze display
+
+        sleepUntil(3500);
+        assertEquals(3700, dealer.nextWakeTime());
+
+        sleepUntil(3700);
+        assertEquals(3700, dealer.nextWakeTime()); // the freeze display is cleared right away
+    }
+}
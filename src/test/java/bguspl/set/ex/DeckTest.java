@@ -0,0 +1,73 @@
+package bguspl.set.ex;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DeckTest {
+
+    private static final int DECK_SIZE = 81;
+
+    private Deck deck;
+
+    @BeforeEach
+    void setUp() {
+        deck = new Deck(DECK_SIZE);
+    }
+
+    private static int[] sorted(int[] cards) {
+        int[] copy = cards.clone();
+        Arrays.sort(copy);
+        return copy;
+    }
+
+    @Test
+    void draw_EmptiesTheDeckWithNoDuplicates() {
+        boolean[] drawn = new boolean[DECK_SIZE];
+        for (int i = 0; i < DECK_SIZE; ++i) {
+            assertFalse(deck.isEmpty());
+            int card = deck.draw();
+            assertFalse(drawn[card]);
+            drawn[card] = true;
+            assertEquals(DECK_SIZE - i - 1, deck.size());
+        }
+        assertTrue(deck.isEmpty());
+        assertEquals(0, deck.toArray().length);
+    }
+
+    @Test
+    void drawCard_RemovesExactlyThatCard() {
+        deck.draw(40);
+        assertEquals(DECK_SIZE - 1, deck.size());
+        assertArrayEquals(IntStream.range(0, DECK_SIZE).filter(card -> card != 40).toArray(), sorted(deck.toArray()));
+
+        deck.draw(0);
+        deck.draw(DECK_SIZE - 1);
+        assertArrayEquals(IntStream.range(1, DECK_SIZE - 1).filter(card -> card != 40).toArray(),
+                sorted(deck.toArray()));
+    }
+
+    @Test
+    void add_ReturnsTheCardsOfAReshuffle() {
+        int[] table = new int[12];
+        for (int i = 0; i < table.length; ++i)
+            table[i] = deck.draw();
+
+        // the dealer returns the cards on the table to the deck, and deals again
+        for (int card : table)
+            deck.add(card);
+        assertEquals(DECK_SIZE, deck.size());
+        assertArrayEquals(IntStream.range(0, DECK_SIZE).toArray(), sorted(deck.toArray()));
+
+        int card = deck.draw();
+        deck.add(card);
+        assertArrayEquals(IntStream.range(0, DECK_SIZE).toArray(), sorted(deck.toArray()));
+    }
+}
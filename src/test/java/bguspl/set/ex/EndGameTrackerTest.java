@@ -0,0 +1,93 @@
+package bguspl.set.ex;
+
+import bguspl.set.Config;
+import bguspl.set.Env;
+import bguspl.set.UtilImpl;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Properties;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class EndGameTrackerTest {
+
+    private CountingUtil util;
+    private EndGameTracker tracker;
+
+    /**
+     * Counts the searches for sets, and remembers the last set found (the witness of the tracker).
+     */
+    static class CountingUtil extends UtilImpl {
+        int searches;
+        int[] found;
+
+        CountingUtil(Config config) {
+            super(config);
+        }
+
+        @Override
+        public Stream<int[]> streamSets(int[] cards) {
+            searches++;
+            found = null;
+            return super.streamSets(cards).peek(set -> found = set);
+        }
+    }
+
+    @BeforeEach
+    void setUp() {
+        Properties properties = new Properties();
+        properties.put("FeatureSize", "3");
+        properties.put("FeatureCount", "2");
+        properties.put("PlayerKeys1", "81,87,69,82");
+        properties.put("PlayerKeys2", "85,73,79,80");
+        TableTest.MockLogger logger = new TableTest.MockLogger();
+        Config config = new Config(logger, properties);
+        util = new CountingUtil(config);
+        Env env = new Env(logger, config, new TableTest.MockUserInterface(), util);
+        tracker = new EndGameTracker(env);
+    }
+
+    @Test
+    void hasSets_WitnessSurvivesUnrelatedCollections() {
+        assertTrue(tracker.hasSets());
+        assertEquals(1, util.searches);
+        int[] witness = util.found;
+        assertNotNull(witness);
+
+        int unrelated = IntStream.range(0, 9).filter(card -> IntStream.of(witness).noneMatch(c -> c == card))
+                .findFirst().getAsInt();
+        tracker.collected(new int[]{unrelated});
+        assertTrue(tracker.hasSets());
+        assertEquals(1, util.searches);
+    }
+
+    @Test
+    void hasSets_SearchesAgainAfterAWitnessCardIsCollected() {
+        assertTrue(tracker.hasSets());
+        int collected = util.found[0];
+
+        tracker.collected(new int[]{collected});
+        assertTrue(tracker.hasSets());
+        assertEquals(2, util.searches);
+        assertTrue(IntStream.of(util.found).noneMatch(card -> card == collected));
+    }
+
+    @Test
+    void hasSets_StaysExhausted() {
+        // only cards 0 and 1 are left, and a set takes 3 cards
+        tracker.collected(IntStream.range(2, 9).toArray());
+        assertFalse(tracker.hasSets());
+        int searches = util.searches;
+
+        tracker.collected(new int[]{0});
+        assertFalse(tracker.hasSets());
+        assertFalse(tracker.hasSets());
+        assertEquals(searches, util.searches);
+    }
+}
@@ -4,20 +4,32 @@ import bguspl.set.Config;
 import bguspl.set.Env;
 import bguspl.set.UserInterface;
 import bguspl.set.Util;
+import bguspl.set.UtilImpl;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
 import java.util.List;
 import java.util.Properties;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.logging.Logger;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 class TableTest {
 
     Table table;
-    private Integer[] slotToCard;
-    private Integer[] cardToSlot;
+    private int[] slotToCard;
+    private int[] cardToSlot;
+    private Env env;
+    private Config config;
+    private MockLogger logger;
 
     @BeforeEach
     void setUp() {
@@ -30,12 +42,12 @@ class TableTest {
         properties.put("TableDelaySeconds", "0");
         properties.put("PlayerKeys1", "81,87,69,82");
         properties.put("PlayerKeys2", "85,73,79,80");
-        MockLogger logger = new MockLogger();
-        Config config = new Config(logger, properties);
-        slotToCard = new Integer[config.tableSize];
-        cardToSlot = new Integer[config.deckSize];
+        logger = new MockLogger();
+        config = new Config(logger, properties);
+        slotToCard = Table.emptyMapping(config.tableSize);
+        cardToSlot = Table.emptyMapping(config.deckSize);
 
-        Env env = new Env(logger, config, new MockUserInterface(), new MockUtil());
+        env = new Env(logger, config, new MockUserInterface(), new MockUtil());
         table = new Table(env, slotToCard, cardToSlot);
     }
 
@@ -44,6 +56,7 @@ class TableTest {
         slotToCard[2] = 5;
         cardToSlot[3] = 1;
         cardToSlot[5] = 2;
+        table = new Table(env, slotToCard, cardToSlot);
 
         return 2;
     }
@@ -53,13 +66,14 @@ class TableTest {
             slotToCard[i] = i;
             cardToSlot[i] = i;
         }
+        table = new Table(env, slotToCard, cardToSlot);
     }
 
     private void placeSomeCardsAndAssert() throws InterruptedException {
         table.placeCard(8, 2);
 
-        assertEquals(8, (int) slotToCard[2]);
-        assertEquals(2, (int) cardToSlot[8]);
+        assertEquals(8, slotToCard[2]);
+        assertEquals(2, cardToSlot[8]);
     }
 
     @Test
@@ -82,6 +96,40 @@ class TableTest {
         assertEquals(slotToCard.length, table.countCards());
     }
 
+    @Test
+    void countCards_FollowsPlacedAndRemovedCards() {
+
+        fillSomeSlots();
+        table.placeCard(8, 0);
+        assertArrayEquals(new int[]{3}, table.freeSlots());
+        table.placeCard(9, 3);
+        assertEquals(4, table.countCards());
+        table.placeCard(10, 3); // replaces card 9
+        assertEquals(4, table.countCards());
+        assertEquals(-1, cardToSlot[9]);
+        table.removeCard(1);
+        assertEquals(3, table.countCards());
+        assertArrayEquals(new int[]{1}, table.freeSlots());
+        assertEquals(-1, slotToCard[1]);
+    }
+
+    @Test
+    void placeCards_FillTheFreeSlotsAtOnce() {
+
+        fillSomeSlots();
+        assertArrayEquals(new int[]{0, 3}, table.freeSlots());
+        table.placeCards(new int[]{8, 9}, table.freeSlots());
+        assertEquals(4, table.countCards());
+        assertEquals(8, slotToCard[0]);
+        assertEquals(3, cardToSlot[9]);
+        assertArrayEquals(new int[0], table.freeSlots());
+
+        table.removeCards(new int[]{0, 2});
+        assertEquals(2, table.countCards());
+        assertEquals(-1, cardToSlot[5]);
+        assertArrayEquals(new int[]{0, 2}, table.freeSlots());
+    }
+
     @Test
     void placeCard_SomeSlotsAreFilled() throws InterruptedException {
 
@@ -95,6 +143,113 @@ class TableTest {
         placeSomeCardsAndAssert();
     }
 
+    @Test
+    void countSets_FollowsPlacedAndRemovedCards() {
+
+        env = new Env(logger, config, new MockUserInterface(), new UtilImpl(config));
+        table = new Table(env, slotToCard, cardToSlot);
+
+        // 0000, 1111, 2222 and 0001 in base 3
+        table.placeCard(0, 0);
+        table.placeCard(40, 1);
+        assertEquals(0, table.countSets());
+        table.placeCard(80, 2);
+        table.placeCard(1, 3);
+        assertEquals(1, table.countSets());
+        table.removeCard(1);
+        assertEquals(0, table.countSets());
+    }
+
+    @Test
+    void countSets_IndexesTheCardsGivenToTheConstructor() {
+
+        // 0000, 1111, 2222 and 0001 in base 3
+        int[] cards = {0, 40, 80, 1};
+        for (int slot = 0; slot < cards.length; ++slot) {
+            slotToCard[slot] = cards[slot];
+            cardToSlot[cards[slot]] = slot;
+        }
+        env = new Env(logger, config, new MockUserInterface(), new UtilImpl(config));
+        table = new Table(env, slotToCard, cardToSlot);
+
+        assertEquals(1, table.countSets());
+        assertArrayEquals(new int[]{0, 40, 80}, IntStream.of(table.sets().get(0)).sorted().toArray());
+        table.removeCard(2);
+        assertEquals(0, table.countSets());
+    }
+
+    @Test
+    void snapshot_KeptUntilTheTableChanges() {
+
+        table.placeCard(8, 2);
+        table.placeToken(1, 2);
+        TableSnapshot snapshot = table.snapshot();
+        assertEquals(8, snapshot.cardAt(2));
+        assertTrue(snapshot.hasToken(1, 2));
+        assertArrayEquals(new int[]{2}, snapshot.tokenSlots(1));
+        assertEquals(table.version(), snapshot.version);
+        assertSame(snapshot, table.snapshot());
+
+        table.removeToken(1, 2);
+        TableSnapshot after = table.snapshot();
+        assertNotSame(snapshot, after);
+        assertTrue(snapshot.hasToken(1, 2)); // the old snapshot did not change
+        assertFalse(after.hasToken(1, 2));
+        assertEquals(snapshot.version + 1, after.version);
+    }
+
+    @Test
+    void snapshot_TakenWhileTokensKeepChanging() throws InterruptedException {
+
+        table.placeCard(8, 2);
+        AtomicBoolean churning = new AtomicBoolean(true);
+        Thread player = new Thread(() -> {
+            while (churning.get())
+                table.update(2, () -> {
+                    if (!table.removeToken(0, 2)) table.placeToken(0, 2);
+                });
+        });
+        player.start();
+        for (int i = 0; i < 100; i++)
+            assertEquals(8, table.snapshot().cardAt(2));
+        churning.set(false);
+        player.join();
+    }
+
+    @Test
+    void newEpoch_RemovesAllTheTokens() {
+
+        table.placeToken(0, 1);
+        table.placeToken(1, 3);
+        long epoch = table.epoch();
+
+        assertEquals(epoch + 1, table.newEpoch());
+        assertEquals(epoch + 1, table.epoch());
+        assertFalse(table.hasToken(0, 1));
+        assertFalse(table.hasToken(1, 3));
+        assertArrayEquals(new int[0], table.tokenSlots(1));
+    }
+
+    @Test
+    void tokens_PlacedAndRemovedPerPlayerAndSlot() {
+
+        table.placeToken(0, 1);
+        table.placeToken(0, 3);
+        table.placeToken(1, 3);
+        assertTrue(table.hasToken(0, 1));
+        assertFalse(table.hasToken(1, 1));
+        assertArrayEquals(new int[]{1, 3}, table.tokenSlots(0));
+        assertEquals(2, table.countTokens(0));
+
+        assertTrue(table.removeToken(0, 1));
+        assertFalse(table.removeToken(0, 1));
+        assertEquals(1, table.countTokens(0));
+        assertArrayEquals(new int[]{0, 1}, table.removeTokens(3));
+        assertEquals(0, table.countTokens(0));
+        assertArrayEquals(new int[0], table.tokenSlots(0));
+        assertArrayEquals(new int[0], table.tokenSlots(1));
+    }
+
     static class MockUserInterface implements UserInterface {
         @Override
         public void dispose() {}
@@ -143,6 +298,11 @@ class TableTest {
             return null;
         }
 
+        @Override
+        public Stream<int[]> streamSets(int[] cards) {
+            return Stream.empty();
+        }
+
         @Override
         public void spin() {}
     }